@@ -25,6 +25,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileReader;
+import java.io.IOException;
 import java.net.URI;
 import java.util.HashSet;
 import java.util.Set;
@@ -49,6 +50,10 @@ import aml.match.Mapping;
 import aml.match.UnsupportedEntityTypeException;
 import aml.match.Alignment;
 import aml.match.AutomaticMatcher;
+import aml.match.AutomaticMatcherSSM;
+import aml.ontology.AbstractRelationshipMap;
+import aml.ontology.HierarchySnapshot;
+import aml.ontology.MergedRelationshipMap;
 import aml.ontology.Ontology;
 import aml.ontology.RelationshipMap;
 import aml.ontology.URIMap;
@@ -70,6 +75,7 @@ import aml.ui.OntologyFileChooser;
 import aml.util.ExtensionFilter;
 import aml.util.InteractionManager;
 import aml.util.Similarity;
+import aml.util.StringPool;
 
 public class AML
 {
@@ -82,7 +88,9 @@ public class AML
 	private String dir;
 	//The ontology and alignment data structures
 	private URIMap uris;
-	private RelationshipMap rels;
+	//The pool of the names in the Lexicons of the open ontologies
+	private StringPool names;
+	private AbstractRelationshipMap rels;
 	private Ontology source;
 	private Ontology target;
 	private MediatorOntology bk;
@@ -100,6 +108,10 @@ public class AML
 	private double fMeasure;
 	//General matching settings
 	private boolean useReasoner = false;
+	private boolean lazyClosure = false;
+	//The directory of the snapshots of the closed class hierarchies
+	//(null if they are not used)
+	private File snapshotDir = null;
 	private boolean matchSameURI = false;
 	private boolean matchClasses;
 	private boolean matchIndividuals;
@@ -145,6 +157,7 @@ public class AML
 	{
         //Initialize the URIMap and RelationshipMap
 		uris = new URIMap();
+		names = new StringPool();
 		rels = new RelationshipMap();
 		dir = "";
 		try
@@ -204,7 +217,10 @@ public class AML
     	target = null;
     	bk = null;
     	uris = null;
+    	names = null;
     	rels = null;
+    	//The SSM state of the closed ontologies
+    	AutomaticMatcherSSM.reset();
     	closeAlignment();
     }
     
@@ -486,6 +502,14 @@ public class AML
 		return matchSteps;
 	}
 	
+	/**
+	 * @return the pool of the names in the Lexicons of the open ontologies
+	 */
+	public StringPool getNamePool()
+	{
+		return names;
+	}
+	
 	/**
      * @return the active NeighborSimilarityStrategy 
      */
@@ -524,9 +548,9 @@ public class AML
     }
     
 	/**
-	 * @return the RelationshipMap
+	 * @return the (read-only) relationships of the open ontologies
 	 */
-	public RelationshipMap getRelationshipMap()
+	public AbstractRelationshipMap getRelationshipMap()
 	{
 		return rels;
 	}
@@ -703,6 +727,11 @@ public class AML
     	return targetIndividualsToMatch.contains(index);
 	}
     
+    public boolean lazyClosure()
+    {
+    	return lazyClosure;
+    }
+    
     /**
      * Matches the active ontologies using the default configuration
      */
@@ -868,9 +897,9 @@ public class AML
 	public void openOntologies(String src, String tgt) throws OWLOntologyCreationException
 	{
 		closeOntologies();
-        //Initialize the URIMap and RelationshipMap
+        //Initialize the URIMap (each ontology has its own RelationshipMap)
 		uris = new URIMap();
-		rels = new RelationshipMap();
+		names = new StringPool();
 		if(useReasoner)
 			PropertyConfigurator.configure(dir + LOG);
 		long time = System.currentTimeMillis()/1000;
@@ -889,13 +918,28 @@ public class AML
 		System.out.println("Classes: " + target.count(EntityType.CLASS));
 		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
+		rels = new MergedRelationshipMap(source,target);
 		System.out.println("Direct Relationships: " + rels.relationshipCount());
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Running transitive closure on RelationshipMap");
-		rels.transitiveClosure();
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Transitive closure finished in " + time + " seconds");	
-		System.out.println("Extended Relationships: " + rels.relationshipCount());
+		int sourceDirect = source.getRelationshipMap().relationshipCount();
+		int targetDirect = target.getRelationshipMap().relationshipCount();
+		String sourceChecksum = restoreSnapshot(source, new File(src));
+		String targetChecksum = restoreSnapshot(target, new File(tgt));
+		if(lazyClosure)
+		{
+			System.out.println("Running transitive closure on RelationshipMap in the background");
+			rels.transitiveClosureInBackground();
+		}
+		else
+		{
+			time = System.currentTimeMillis()/1000;
+			System.out.println("Running transitive closure on RelationshipMap");
+			rels.transitiveClosure();
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Transitive closure finished in " + time + " seconds");	
+			System.out.println("Extended Relationships: " + rels.relationshipCount());
+			saveSnapshot(source, new File(src), sourceChecksum, sourceDirect);
+			saveSnapshot(target, new File(tgt), targetChecksum, targetDirect);
+		}
 		System.out.println("Disjoints: " + rels.disjointCount());
     	//Reset the alignment, mapping, and evaluation
     	a = null;
@@ -909,15 +953,18 @@ public class AML
     	sw.extendLexicons();
     	ParenthesisExtender p = new ParenthesisExtender();
     	p.extendLexicons();
+    	//Freeze the Lexicons for the matching phase
+    	source.getLexicon().freeze();
+    	target.getLexicon().freeze();
     	System.out.println("Finished!");	
 	}
 	
 	public void openOntologies(URI src, URI tgt) throws OWLOntologyCreationException
 	{
 		closeOntologies();
-        //Initialize the URIMap and RelationshipMap
+        //Initialize the URIMap (each ontology has its own RelationshipMap)
 		uris = new URIMap();
-		rels = new RelationshipMap();
+		names = new StringPool();
 		if(useReasoner)
 			PropertyConfigurator.configure(dir + LOG);
 		long time = System.currentTimeMillis()/1000;
@@ -936,13 +983,28 @@ public class AML
 		System.out.println("Classes: " + target.count(EntityType.CLASS));
 		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
+		rels = new MergedRelationshipMap(source,target);
 		System.out.println("Direct Relationships: " + rels.relationshipCount());
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Running transitive closure on RelationshipMap");
-		rels.transitiveClosure();
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Transitive closure finished in " + time + " seconds");	
-		System.out.println("Extended Relationships: " + rels.relationshipCount());
+		int sourceDirect = source.getRelationshipMap().relationshipCount();
+		int targetDirect = target.getRelationshipMap().relationshipCount();
+		String sourceChecksum = restoreSnapshot(source, toFile(src));
+		String targetChecksum = restoreSnapshot(target, toFile(tgt));
+		if(lazyClosure)
+		{
+			System.out.println("Running transitive closure on RelationshipMap in the background");
+			rels.transitiveClosureInBackground();
+		}
+		else
+		{
+			time = System.currentTimeMillis()/1000;
+			System.out.println("Running transitive closure on RelationshipMap");
+			rels.transitiveClosure();
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Transitive closure finished in " + time + " seconds");	
+			System.out.println("Extended Relationships: " + rels.relationshipCount());
+			saveSnapshot(source, toFile(src), sourceChecksum, sourceDirect);
+			saveSnapshot(target, toFile(tgt), targetChecksum, targetDirect);
+		}
 		System.out.println("Disjoints: " + rels.disjointCount());
     	//Reset the alignment, mapping, and evaluation
     	a = null;
@@ -956,9 +1018,64 @@ public class AML
     	sw.extendLexicons();
     	ParenthesisExtender p = new ParenthesisExtender();
     	p.extendLexicons();
+    	//Freeze the Lexicons for the matching phase
+    	source.getLexicon().freeze();
+    	target.getLexicon().freeze();
     	System.out.println("Finished!");	
     }
     
+	//Returns the local file of a URI (null if it isn't a file URI)
+	private File toFile(URI uri)
+	{
+		if(!"file".equalsIgnoreCase(uri.getScheme()))
+			return null;
+		return new File(uri);
+	}
+	
+	//Restores the closed class hierarchy of an ontology from its snapshot,
+	//if snapshots are used and the ontology is a local file, and returns
+	//the checksum of the file if its snapshot is still to be saved
+	private String restoreSnapshot(Ontology o, File f)
+	{
+		if(snapshotDir == null || f == null || !f.isFile())
+			return null;
+		try
+		{
+			String checksum = HierarchySnapshot.checksum(f);
+			File snapshot = new File(snapshotDir, HierarchySnapshot.fileName(f));
+			if(HierarchySnapshot.restore(o.getRelationshipMap(), uris, snapshot, checksum))
+			{
+				System.out.println("Class hierarchy of " + o.getURI() + " restored from " + snapshot);
+				return null;
+			}
+			return checksum;
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not read " + f + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	//Saves the snapshot of the closed class hierarchy of an ontology
+	//(if it wasn't restored from one)
+	private void saveSnapshot(Ontology o, File f, String checksum, int directCount)
+	{
+		if(checksum == null)
+			return;
+		try
+		{
+			File snapshot = new File(snapshotDir, HierarchySnapshot.fileName(f));
+			snapshotDir.mkdirs();
+			if(HierarchySnapshot.save(o.getRelationshipMap(), uris, snapshot, checksum, directCount))
+				System.out.println("Class hierarchy of " + o.getURI() + " saved to " + snapshot);
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not save the class hierarchy snapshot of " + f + ": " + e.getMessage());
+		}
+	}
+    
     public void openReferenceAlignment(String path) throws Exception
     {
     	ref = new Alignment(path);
@@ -1124,6 +1241,27 @@ public class AML
 		this.language = language;
 	}
 	
+	/**
+	 * Sets whether the transitive closure of the RelationshipMap runs in the
+	 * background when ontologies are opened, rather than before matching
+	 * @param lazy: whether to run the transitive closure in the background
+	 */
+	public void setLazyClosure(boolean lazy)
+	{
+		lazyClosure = lazy;
+	}
+	
+	/**
+	 * Sets the directory where the closed class hierarchies of the local
+	 * ontology files are saved, and from which they are restored when the
+	 * same files are opened again (instead of running the transitive closure)
+	 * @param dir: the directory of the snapshots (null to not use snapshots)
+	 */
+	public void setSnapshotDir(File dir)
+	{
+		snapshotDir = dir;
+	}
+	
 	public void setLanguageSetting()
 	{
 		lang = LanguageSetting.getLanguageSetting();
@@ -1143,6 +1281,9 @@ public class AML
 	{
 		source = s;
 		target = t;
+		//Reuse the RelationshipMaps of the ontologies, closing them if needed
+		rels = new MergedRelationshipMap(s,t);
+		rels.transitiveClosure();
 		defaultConfig();
 	}
 	
@@ -1355,6 +1496,8 @@ public class AML
 				d.translateLexicon(target.getLexicon());
 			}
 		}
+		source.getLexicon().freeze();
+		target.getLexicon().freeze();
 		languages = new HashSet<String>();
 		for(String s : source.getLexicon().getLanguages())
 			if(target.getLexicon().getLanguages().contains(s))
@@ -1365,4 +1508,5 @@ public class AML
 	{
 		return useReasoner;
 	}
+
 }
\ No newline at end of file
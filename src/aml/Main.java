@@ -98,6 +98,10 @@ public class Main
 					inputPath = args[++i];
 				else if((args[i].equalsIgnoreCase("-o") || args[i].equalsIgnoreCase("--output")) && i+1 < args.length)
 					outputPath = args[++i];
+				else if(args[i].equalsIgnoreCase("-l") || args[i].equalsIgnoreCase("--lazy"))
+					aml.setLazyClosure(true);
+				else if((args[i].equalsIgnoreCase("-c") || args[i].equalsIgnoreCase("--cache")) && i+1 < args.length)
+					aml.setSnapshotDir(new File(args[++i]));
 				else if(args[i].equalsIgnoreCase("-a") || args[i].equalsIgnoreCase("--auto"))
 					mode = "auto";
 				else if(args[i].equalsIgnoreCase("-m") || args[i].equalsIgnoreCase("--manual"))
@@ -269,6 +273,11 @@ public class Main
 		System.out.println("|               alignment, to evaluate the match result)       |");
 		System.out.println("|  -o (--output) 'path_to_ouput_alignment'                     |");
 		System.out.println("|               (if you want to save the resulting alignment)  |");
+		System.out.println("|  -l (--lazy) -> close the class hierarchy in the background  |");
+		System.out.println("|                 (matching waits for it only if it needs it)  |");
+		System.out.println("|  -c (--cache) 'path_to_cache_directory'                      |");
+		System.out.println("|               (saves the closed class hierarchies there, and |");
+		System.out.println("|               restores them when the same files are opened)  |");
 		System.out.println("|  -a (--auto) -> automatic match mode                         |");
 		System.out.println("|   OR                                                         |");
 		System.out.println("|  -m (--manual) -> manual match mode (you can configure the   |");
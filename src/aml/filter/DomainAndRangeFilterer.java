@@ -24,7 +24,7 @@ import java.util.Set;
 import aml.AML;
 import aml.match.Alignment;
 import aml.match.Mapping;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.URIMap;
 import aml.settings.EntityType;
 import aml.settings.MappingStatus;
@@ -36,7 +36,7 @@ public class DomainAndRangeFilterer implements Filterer
 //Attributes
 	
 	private AML aml;
-	private RelationshipMap rm;
+	private AbstractRelationshipMap rm;
 	
 //Constructors
 	
@@ -103,7 +103,7 @@ public class DomainAndRangeFilterer implements Filterer
 	//or one is aligned to the parent of the other)
 	private boolean idsMatch(int sIndex, int tIndex)
 	{
-		RelationshipMap rm = aml.getRelationshipMap();
+		AbstractRelationshipMap rm = aml.getRelationshipMap();
 
 		if(sIndex == tIndex || aml.getAlignment().containsMapping(sIndex, tIndex))
 	    	return true;
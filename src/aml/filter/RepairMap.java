@@ -35,12 +35,12 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import aml.AML;
-import aml.util.Table2Set;
+import aml.util.IntTable2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
 import aml.match.Alignment;
 import aml.match.Mapping;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.settings.MappingStatus;
 
 public class RepairMap implements Iterable<Integer>
@@ -49,7 +49,7 @@ public class RepairMap implements Iterable<Integer>
 //Attributes
 	
 	private AML aml;
-	private RelationshipMap rels;
+	private AbstractRelationshipMap rels;
 	private Alignment a;
 	//The list of classes that are relevant for coherence checking
 	private HashSet<Integer> classList;
@@ -66,8 +66,8 @@ public class RepairMap implements Iterable<Integer>
 	//The list of conflict sets
 	private Vector<Path> conflictSets;
 	//The table of conflicts per mapping
-	private Table2Set<Integer,Integer> conflictMappings;
-	private Table2Set<Integer,Integer> mappingConflicts;
+	private IntTable2Set conflictMappings;
+	private IntTable2Set mappingConflicts;
 	//The available CPU threads
 	private int threads;
 	
@@ -298,20 +298,20 @@ public class RepairMap implements Iterable<Integer>
 			for(Integer j : rels.getSubClasses(i,false))
 			{
 				//Count their parents
-				Set<Integer> pars = rels.getSuperClasses(j, true);
+				int[] pars = rels.getSuperClassArray(j);
 				//Check if they have a disjoint clause
 				int hasDisjoint = 0;
 				if(rels.hasDisjoint(j))
 					hasDisjoint = 1;
 				//Exclude those that don't have at least two parents
 				//or a parent and a disjoint clause
-				if(pars.size() + hasDisjoint < 2)
+				if(pars.length + hasDisjoint < 2)
 					continue;
 				//Count the classList classes in the ancestral
 				//line of each parent (or until two parents with
 				//classList ancestors are found)
 				int count = hasDisjoint;
-				for(Integer k : pars)
+				for(int k : pars)
 				{
 					if(classList.contains(k))
 						count++;
@@ -628,8 +628,8 @@ public class RepairMap implements Iterable<Integer>
 				addConflict(p,conflictSets);
 		}
 		//Now go through the conflict sets and link them to the mappings
-		conflictMappings = new Table2Set<Integer,Integer>();
-		mappingConflicts = new Table2Set<Integer,Integer>();
+		conflictMappings = new IntTable2Set();
+		mappingConflicts = new IntTable2Set();
 		for(int i = 0; i < conflictSets.size(); i++)
 		{
 			for(Integer j : conflictSets.get(i))
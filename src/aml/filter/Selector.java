@@ -21,7 +21,7 @@ package aml.filter;
 import aml.AML;
 import aml.match.Alignment;
 import aml.match.Mapping;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.settings.EntityType;
 import aml.settings.MappingStatus;
 import aml.settings.SelectionType;
@@ -234,7 +234,7 @@ public class Selector implements Filterer, Flagger
 	
 	private Alignment parentFilter(Alignment in)
 	{
-		RelationshipMap r = aml.getRelationshipMap();
+		AbstractRelationshipMap r = aml.getRelationshipMap();
 		Alignment out = new Alignment();
 		for(Mapping m : in)
 		{
@@ -24,8 +24,8 @@ import java.util.Set;
 
 import aml.AML;
 import aml.knowledge.WordNet;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Lexicon;
-import aml.ontology.RelationshipMap;
 import aml.ontology.ValueMap;
 import aml.settings.EntityType;
 import aml.util.ISub;
@@ -40,7 +40,7 @@ public abstract class AbstractInstanceMatcher implements PrimaryMatcher
 	private static final String NAME = "Abstract Individual Matcher";
 	private static final EntityType[] SUPPORT = {EntityType.INDIVIDUAL};
 	protected Set<Integer> sourceInd, targetInd;
-	protected RelationshipMap rels;
+	protected AbstractRelationshipMap rels;
 	protected Lexicon sLex, tLex;
 	protected ValueMap sValues, tValues;
 	protected WordNet wn;
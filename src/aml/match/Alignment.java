@@ -41,13 +41,13 @@ import org.dom4j.Element;
 import org.dom4j.io.SAXReader;
 
 import aml.AML;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Ontology;
-import aml.ontology.RelationshipMap;
 import aml.ontology.URIMap;
 import aml.settings.EntityType;
 import aml.settings.MappingRelation;
 import aml.settings.MappingStatus;
-import aml.util.Table2Map;
+import aml.util.IntTable2Map;
 
 public class Alignment implements Collection<Mapping>
 {
@@ -57,9 +57,9 @@ public class Alignment implements Collection<Mapping>
 	//Term mappings organized in list
 	private Vector<Mapping> maps;
 	//Term mappings organized by source class (Source Id, Target Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> sourceMaps;
+	private IntTable2Map<Mapping> sourceMaps;
 	//Term mappings organized by target class (Target Id, Source Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> targetMaps;
+	private IntTable2Map<Mapping> targetMaps;
 	//Link to AML and the Ontologies
 	private AML aml;
 	private Ontology source;
@@ -75,8 +75,8 @@ public class Alignment implements Collection<Mapping>
 	public Alignment()
 	{
 		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();
+		sourceMaps = new IntTable2Map<Mapping>();
+		targetMaps = new IntTable2Map<Mapping>();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -304,8 +304,8 @@ public class Alignment implements Collection<Mapping>
 	public void clear()
 	{
 		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();		
+		sourceMaps = new IntTable2Map<Mapping>();
+		targetMaps = new IntTable2Map<Mapping>();		
 	}
 	
 	/**
@@ -346,7 +346,7 @@ public class Alignment implements Collection<Mapping>
 	public boolean containsAncestralMapping(int sourceId, int targetId)
 	{
 		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		
 		Set<Integer> sourceAncestors = rels.getAncestors(sourceId);
 		Set<Integer> targetAncestors = rels.getAncestors(targetId);
@@ -433,7 +433,7 @@ public class Alignment implements Collection<Mapping>
 	public boolean containsDescendantMapping(int sourceId, int targetId)
 	{
 		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		
 		Set<Integer> sourceDescendants = rels.getDescendants(sourceId);
 		Set<Integer> targetDescendants = rels.getDescendants(targetId);
@@ -489,7 +489,7 @@ public class Alignment implements Collection<Mapping>
 	public boolean containsParentMapping(int sourceId, int targetId)
 	{
 		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		
 		Set<Integer> sourceAncestors = rels.getParents(sourceId);
 		Set<Integer> targetAncestors = rels.getParents(targetId);
@@ -719,14 +719,14 @@ public class Alignment implements Collection<Mapping>
 	public Alignment getHighLevelAlignment()
 	{
 		AML aml = AML.getInstance();
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		
 		Alignment a = new Alignment();
 		int total = maps.size();
 		for(Mapping m : maps)
 		{
-			Set<Integer> sourceAncestors = rels.getHighLevelAncestors(m.getSourceId());
-			Set<Integer> targetAncestors = rels.getHighLevelAncestors(m.getTargetId());
+			int[] sourceAncestors = rels.getHighLevelAncestorArray(m.getSourceId());
+			int[] targetAncestors = rels.getHighLevelAncestorArray(m.getTargetId());
 			for(int i : sourceAncestors)
 			{
 				for(int j : targetAncestors)
@@ -38,6 +38,7 @@ import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
 import aml.settings.NeighborSimilarityStrategy;
+import aml.settings.SSMConfig;
 import aml.settings.SelectionType;
 import aml.settings.SemanticSimilarity;
 import aml.settings.SizeCategory;
@@ -67,18 +68,18 @@ public class AutomaticMatcherSSM {
 	// And their modifiers
 	private static final double INTERACTIVE_MOD = -0.3;
 	private static final double PSM_MOD = 0.1;
+	// Fraction of the maximum heap given to the streaming SSM for huge ontologies
+	private static final long SSM_MEMORY_FRACTION = 8;
 	// Alignments
 	private static Alignment a;
 	private static Alignment aLowerThreshold;
 	private static Alignment lex;
 	// Semantic Similarity parameters
-	private static SemanticSimilarity semanticMeasure;
-	private static SemanticSimilarity IC;
-	private static SemanticSimilarity weighting;
-	private static SemanticSimilarity finalScore;
-
-	private static SemanticSimilarity strat;
-	private static int radius;
+	private static SSMConfig config;
+	// Semantic Similarity Matcher kept between runs in incremental mode, so
+	// that repeated runs only score the candidate pairs that changed (huge
+	// ontologies use a streaming matcher instead, which isn't kept)
+	private static SemanticEqMatcher ssm;
 
 	// Constructors
 
@@ -99,6 +100,7 @@ public class AutomaticMatcherSSM {
 		matchIndividuals = aml.matchIndividuals();
 		matchProperties = aml.matchProperties();
 		size = aml.getSizeCategory();
+		config = new SSMConfig();
 		// Initialize the alignment
 		a = new Alignment();
 		lowerThresh = aml.getThreshold();
@@ -113,6 +115,11 @@ public class AutomaticMatcherSSM {
 	}
 
 	public static void match(double threshold, double selectorThreshold) throws UnsupportedEntityTypeException {
+		match(threshold, selectorThreshold, new SSMConfig());
+	}
+
+	public static void match(double threshold, double selectorThreshold, SSMConfig ssmConfig)
+			throws UnsupportedEntityTypeException {
 		// Get the AML instance
 		aml = AML.getInstance();
 		// source = aml.getSource();
@@ -125,12 +132,7 @@ public class AutomaticMatcherSSM {
 		matchProperties = aml.matchProperties();
 		size = aml.getSizeCategory();
 
-		radius = 3;
-		IC = SemanticSimilarity.icSECO;
-		semanticMeasure = SemanticSimilarity.RESNIK;
-		strat = SemanticSimilarity.MAXIMUM;
-		weighting = SemanticSimilarity.WeightTCONORM;
-		finalScore = SemanticSimilarity.FinalAVERAGE;
+		config = ssmConfig;
 
 		// Initialize the alignment
 		a = new Alignment();
@@ -152,53 +154,32 @@ public class AutomaticMatcherSSM {
 
 	public static void match(double threshold, double selectorThreshold, SemanticSimilarity... args)
 			throws UnsupportedEntityTypeException {
-
-		if (args.length == 5)
-			finalScore = args[4];
-		if (args.length >= 4)
-			weighting = args[3];
-		if (args.length >= 3)
-			strat = args[2];
-		if (args.length >= 2)
-			semanticMeasure = args[1];
-		if (args.length >= 1)
-			IC = args[0];
-		match(threshold, selectorThreshold);
+		match(threshold, selectorThreshold, new SSMConfig(args));
 	}
 
 	public static void match(double selectorThreshold, double threshold, int rad, SemanticSimilarity... args)
 			throws UnsupportedEntityTypeException {
-		radius = rad;
-		if (args.length == 5)
-			finalScore = args[4];
-		if (args.length >= 4)
-			weighting = args[3];
-		if (args.length >= 3)
-			strat = args[2];
-		if (args.length >= 2)
-			semanticMeasure = args[1];
-		if (args.length >= 1)
-			IC = args[0];
-		// Get the AML instance
-		match(threshold, selectorThreshold);
+		match(threshold, selectorThreshold, new SSMConfig(rad, args));
 	}
 
 	public static void match(double lowerThreshold, double selectorThreshold, double threshold, int rad,
 			SemanticSimilarity... args) throws UnsupportedEntityTypeException {
 		lowerThresh = lowerThreshold;
-		radius = rad;
-		if (args.length == 5)
-			finalScore = args[4];
-		if (args.length >= 4)
-			weighting = args[3];
-		if (args.length >= 3)
-			strat = args[2];
-		if (args.length >= 2)
-			semanticMeasure = args[1];
-		if (args.length >= 1)
-			IC = args[0];
-		// Get the AML instance
-		match(threshold, selectorThreshold);
+		match(threshold, selectorThreshold, new SSMConfig(rad, args));
+	}
+
+	/**
+	 * Discards the state kept from the last run (the incremental matcher,
+	 * with its scores, ICs, neighborhoods and result, the alignments and the
+	 * ontologies), which must not outlive the ontologies it was built from
+	 */
+	public static void reset() {
+		ssm = null;
+		a = null;
+		aLowerThreshold = null;
+		lex = null;
+		source = null;
+		target = null;
 	}
 	// Private Methods
 
@@ -403,10 +384,22 @@ public class AutomaticMatcherSSM {
 
 		Alignment aToExtend = aml.getAlignment();
 
-		SemanticEqMatcher ssm = new SemanticEqMatcher(aLowerThreshold, radius, IC, semanticMeasure, strat, weighting,
-				finalScore);
-
-		Alignment afterSSM = ssm.extendAlignment(aToExtend, EntityType.CLASS, thresh);
+		Alignment afterSSM;
+		// For huge ontologies, stream the extension in batches to bound the heap,
+		// with a matcher that isn't kept once the extension is done
+		if (size.equals(SizeCategory.HUGE)) {
+			ssm = null;
+			SemanticEqMatcher streaming = new SemanticEqMatcher(aLowerThreshold, config);
+			streaming.setMemoryBudget(Runtime.getRuntime().maxMemory() / SSM_MEMORY_FRACTION);
+			afterSSM = streaming.extendAlignment(aToExtend, EntityType.CLASS, thresh);
+		} else {
+			if (ssm == null || !ssm.getConfig().equals(config)) {
+				ssm = new SemanticEqMatcher(aLowerThreshold, config);
+				ssm.setIncremental(true);
+			} else
+				ssm.setLowerThresholdAlignment(aLowerThreshold);
+			afterSSM = ssm.extendAlignment(aToExtend, EntityType.CLASS, thresh);
+		}
 
 		aToExtend.addAll(afterSSM);
 
@@ -19,10 +19,8 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.Set;
-
 import aml.AML;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.settings.EntityType;
 
 public class BlockRematcher implements Rematcher
@@ -70,7 +68,7 @@ public class BlockRematcher implements Rematcher
 		AML aml = AML.getInstance();
 		Alignment maps = new Alignment();
 		Alignment high = a.getHighLevelAlignment();
-		RelationshipMap rMap = aml.getRelationshipMap();
+		AbstractRelationshipMap rMap = aml.getRelationshipMap();
 		for(Mapping m : a)
 		{
 			int sId = m.getSourceId();
@@ -80,12 +78,12 @@ public class BlockRematcher implements Rematcher
 				maps.add(m);
 				continue;
 			}
-			Set<Integer> sourceAncestors = rMap.getHighLevelAncestors(sId);
-			Set<Integer> targetAncestors = rMap.getHighLevelAncestors(tId);
+			int[] sourceAncestors = rMap.getHighLevelAncestorArray(sId);
+			int[] targetAncestors = rMap.getHighLevelAncestorArray(tId);
 			double maxSim = 0;
-			for(Integer i : sourceAncestors)
+			for(int i : sourceAncestors)
 			{
-				for(Integer j : targetAncestors)
+				for(int j : targetAncestors)
 				{
 					double sim = high.getSimilarity(i, j);
 					if(sim > maxSim)
@@ -0,0 +1,309 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Scores a table of candidate pairs in parallel, on a ForkJoinPool shared by  *
+* all matchers. The candidates are split into chunks of consecutive source    *
+* ids, each worker thread writes the pairs that pass the threshold to its own *
+* primitive buffer, and Mappings are only created for those pairs, in the     *
+* order of the candidates, once all chunks are scored.                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import aml.util.PairSet;
+import aml.util.Table2Set;
+
+public abstract class ChunkedScorer
+{
+
+//Attributes
+
+	//The ForkJoinPool shared by all scorers
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	//The maximum number of pairs scored by a single task
+	private static final int CHUNK_SIZE = 2048;
+
+//Public Methods
+
+	/**
+	 * Scores all pairs in the given table in parallel
+	 * @param toMap: the table of candidate pairs (source id -> target ids)
+	 * @param thresh: the minimum similarity of the pairs to keep
+	 * @return the Alignment with the pairs with similarity above the threshold
+	 */
+	public Alignment map(Table2Set<Integer,Integer> toMap, double thresh)
+	{
+		int[] keys = new int[toMap.keyCount()];
+		int k = 0;
+		int count = 0;
+		for(Integer i : toMap.keySet())
+		{
+			keys[k++] = i;
+			count += toMap.entryCount(i);
+		}
+		Arrays.sort(keys);
+		int[] sources = new int[count];
+		int[] targets = new int[sources.length];
+		int p = 0;
+		for(int i : keys)
+		{
+			for(Integer j : toMap.get(i))
+			{
+				sources[p] = i;
+				targets[p++] = j;
+			}
+		}
+		return map(sources, targets, thresh);
+	}
+
+	/**
+	 * Scores all pairs in the given set in parallel
+	 * @param toMap: the set of candidate pairs (source id, target id)
+	 * @param thresh: the minimum similarity of the pairs to keep
+	 * @return the Alignment with the pairs with similarity above the threshold
+	 */
+	public Alignment map(PairSet toMap, double thresh)
+	{
+		long[] pairs = toMap.toSortedArray();
+		int[] sources = new int[pairs.length];
+		int[] targets = new int[pairs.length];
+		for(int i = 0; i < pairs.length; i++)
+		{
+			sources[i] = PairSet.first(pairs[i]);
+			targets[i] = PairSet.second(pairs[i]);
+		}
+		return map(sources, targets, thresh);
+	}
+
+	/**
+	 * Scores all pairs given by two parallel arrays in parallel
+	 * @param sources: the source ids of the pairs, with equal ids in consecutive positions
+	 * @param targets: the target ids of the pairs
+	 * @param thresh: the minimum similarity of the pairs to keep
+	 * @return the Alignment with the pairs with similarity above the threshold
+	 */
+	public Alignment map(int[] sources, int[] targets, double thresh)
+	{
+		ScoringRun run = new ScoringRun(sources, targets, thresh);
+		if(sources.length > 0)
+			POOL.invoke(run.new ScoringTask(0, sources.length));
+		return run.collect();
+	}
+
+	/**
+	 * Scores all pairs given by two parallel arrays in parallel, keeping the
+	 * similarity of every pair instead of creating Mappings
+	 * @param sources: the source ids of the pairs, with equal ids in consecutive positions
+	 * @param targets: the target ids of the pairs
+	 * @return the similarity of each pair, rounded as in the Mappings
+	 */
+	public double[] scoreAll(int[] sources, int[] targets)
+	{
+		ScoringRun run = new ScoringRun(sources, targets, 0.0);
+		run.scores = new double[sources.length];
+		if(sources.length > 0)
+			POOL.invoke(run.new ScoringTask(0, sources.length));
+		return run.scores;
+	}
+
+	/**
+	 * Computes the similarity between two entities
+	 * (must be safe to call concurrently from several threads)
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @return the similarity between the entities
+	 */
+	protected abstract double score(int sourceId, int targetId);
+
+//Private Methods
+
+	//The state of one call to map() or scoreAll(): the candidate pairs, the
+	//threshold and the result buffer of each thread that took part in the
+	//scoring (or the array of all scores, for scoreAll())
+	private class ScoringRun
+	{
+		private int[] sources;
+		private int[] targets;
+		private double thresh;
+		private ConcurrentHashMap<Thread,ResultBuffer> buffers;
+		private double[] scores;
+
+		ScoringRun(int[] sources, int[] targets, double thresh)
+		{
+			this.sources = sources;
+			this.targets = targets;
+			this.thresh = thresh;
+			buffers = new ConcurrentHashMap<Thread,ResultBuffer>();
+		}
+
+		//Gets the result buffer of the current thread (each entry is only
+		//ever created and written by its own thread)
+		ResultBuffer getBuffer()
+		{
+			Thread current = Thread.currentThread();
+			ResultBuffer b = buffers.get(current);
+			if(b == null)
+			{
+				b = new ResultBuffer();
+				buffers.put(current, b);
+			}
+			return b;
+		}
+
+		//Scores the pairs in [from,to) into the buffer of the current thread
+		void score(int from, int to)
+		{
+			//Each task writes its own range of the scores, so they need no buffer
+			if(scores != null)
+			{
+				for(int i = from; i < to; i++)
+					scores[i] = Math.round(ChunkedScorer.this.score(sources[i],targets[i])*10000)/10000.0;
+				return;
+			}
+			ResultBuffer b = getBuffer();
+			b.startSegment(from);
+			for(int i = from; i < to; i++)
+			{
+				//Mappings round their similarity, so the threshold must be
+				//checked against the rounded value
+				double sim = Math.round(ChunkedScorer.this.score(sources[i],targets[i])*10000)/10000.0;
+				if(sim >= thresh)
+					b.add(sources[i], targets[i], sim);
+			}
+			b.endSegment();
+		}
+
+		//Merges the result buffers into an Alignment, following the order
+		//of the candidate pairs
+		Alignment collect()
+		{
+			ArrayList<int[]> segments = new ArrayList<int[]>();
+			ArrayList<ResultBuffer> owners = new ArrayList<ResultBuffer>();
+			for(ResultBuffer b : buffers.values())
+			{
+				for(int i = 0; i < b.segmentCount; i++)
+				{
+					segments.add(new int[]{b.segments[3*i], b.segments[3*i+1], b.segments[3*i+2], owners.size()});
+				}
+				owners.add(b);
+			}
+			Collections.sort(segments, new Comparator<int[]>()
+			{
+				@Override
+				public int compare(int[] x, int[] y)
+				{
+					return Integer.compare(x[0], y[0]);
+				}
+			});
+			Alignment maps = new Alignment();
+			for(int[] s : segments)
+			{
+				ResultBuffer b = owners.get(s[3]);
+				for(int i = s[1]; i < s[2]; i++)
+					maps.add(b.sources[i], b.targets[i], b.sims[i]);
+			}
+			return maps;
+		}
+
+		//Recursive task that splits the candidates at source id boundaries
+		private class ScoringTask extends RecursiveAction
+		{
+			private static final long serialVersionUID = 1L;
+			private int from;
+			private int to;
+
+			ScoringTask(int from, int to)
+			{
+				this.from = from;
+				this.to = to;
+			}
+
+			@Override
+			protected void compute()
+			{
+				int mid = split();
+				if(mid == -1)
+					score(from, to);
+				else
+					invokeAll(new ScoringTask(from, mid), new ScoringTask(mid, to));
+			}
+
+			//Finds the source id boundary closest to the middle of the range,
+			//or returns -1 if the range should not be split
+			private int split()
+			{
+				if(to - from <= CHUNK_SIZE)
+					return -1;
+				int half = (from + to) >>> 1;
+				int mid = half;
+				while(mid < to && sources[mid] == sources[mid-1])
+					mid++;
+				if(mid < to)
+					return mid;
+				mid = half;
+				while(mid > from && sources[mid] == sources[mid-1])
+					mid--;
+				if(mid > from)
+					return mid;
+				return -1;
+			}
+		}
+	}
+
+	//Growable primitive buffer of the scored pairs of one thread, divided into
+	//segments, each recording {first candidate, start, end} of a chunk
+	private static class ResultBuffer
+	{
+		private int[] sources = new int[64];
+		private int[] targets = new int[64];
+		private double[] sims = new double[64];
+		private int size = 0;
+		private int[] segments = new int[12];
+		private int segmentCount = 0;
+
+		void add(int source, int target, double sim)
+		{
+			if(size == sources.length)
+			{
+				sources = Arrays.copyOf(sources, size*2);
+				targets = Arrays.copyOf(targets, size*2);
+				sims = Arrays.copyOf(sims, size*2);
+			}
+			sources[size] = source;
+			targets[size] = target;
+			sims[size++] = sim;
+		}
+
+		void startSegment(int first)
+		{
+			if(3*segmentCount + 3 > segments.length)
+				segments = Arrays.copyOf(segments, segments.length*2);
+			segments[3*segmentCount] = first;
+			segments[3*segmentCount+1] = size;
+		}
+
+		void endSegment()
+		{
+			segments[3*segmentCount+2] = size;
+			segmentCount++;
+		}
+	}
+}
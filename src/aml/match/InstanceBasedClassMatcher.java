@@ -23,8 +23,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import aml.AML;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Ontology;
-import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
 import aml.util.Similarity;
 import aml.util.Table2Set;
@@ -71,7 +71,7 @@ public class InstanceBasedClassMatcher implements PrimaryMatcher
 		AML aml = AML.getInstance();
 		Ontology source = aml.getSource();
 		Ontology target = aml.getTarget();
-		RelationshipMap rm = aml.getRelationshipMap();
+		AbstractRelationshipMap rm = aml.getRelationshipMap();
 		System.out.println(rm.instanceCount());
 		
 		Table2Set<Integer,Integer> pairs = new Table2Set<Integer,Integer>();
@@ -132,6 +132,8 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 				target.add(s, n, "en", TYPE, uri, sim);
 			}
 		}
+		source.freeze();
+		target.freeze();
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 	}
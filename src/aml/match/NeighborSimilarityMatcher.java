@@ -19,16 +19,10 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.settings.EntityType;
 import aml.settings.NeighborSimilarityStrategy;
 import aml.util.Table2Set;
@@ -45,12 +39,10 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 	private static final EntityType[] SUPPORT = {EntityType.CLASS};
 	//Links to ontology data structures
 	private AML aml;
-	private RelationshipMap rels;
+	private AbstractRelationshipMap rels;
 	private Alignment input;
 	private NeighborSimilarityStrategy strat;
 	private boolean direct;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -60,7 +52,6 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		rels = aml.getRelationshipMap();
 		strat = NeighborSimilarityStrategy.MINIMUM;
 		direct = aml.directNeighbors();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 	public NeighborSimilarityMatcher(NeighborSimilarityStrategy s, boolean direct)
@@ -85,26 +76,26 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			Mapping m = input.get(i);
 			if(!aml.getURIMap().isClass(m.getSourceId()))
 				continue;
-			Set<Integer> sourceSubClasses = rels.getSubClasses(m.getSourceId(),true);
-			Set<Integer> targetSubClasses = rels.getSubClasses(m.getTargetId(),true);
-			for(Integer s : sourceSubClasses)
+			int[] sourceSubClasses = rels.getSubClassArray(m.getSourceId());
+			int[] targetSubClasses = rels.getSubClassArray(m.getTargetId());
+			for(int s : sourceSubClasses)
 			{
 				if(input.containsSource(s))
 					continue;
-				for(Integer t : targetSubClasses)
+				for(int t : targetSubClasses)
 				{
 					if(input.containsTarget(t))
 						continue;
 					toMap.add(s, t);
 				}
 			}
-			Set<Integer> sourceSuperClasses = rels.getSuperClasses(m.getSourceId(),true);
-			Set<Integer> targetSuperClasses = rels.getSuperClasses(m.getTargetId(),true);
-			for(Integer s : sourceSuperClasses)
+			int[] sourceSuperClasses = rels.getSuperClassArray(m.getSourceId());
+			int[] targetSuperClasses = rels.getSuperClassArray(m.getTargetId());
+			for(int s : sourceSuperClasses)
 			{
 				if(input.containsSource(s))
 					continue;
-				for(Integer t : targetSuperClasses)
+				for(int t : targetSuperClasses)
 				{
 					if(input.containsTarget(t))
 						continue;
@@ -179,40 +170,10 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
+	//Maps a table of classes in parallel, using the shared scoring pool
 	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		return new MappingScorer().map(toMap,thresh);
 	}
 	
 	//Computes the neighbor structural similarity between two terms by
@@ -265,22 +226,13 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			return (parentSim + childrenSim)*0.5;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//Scorer for mapping two classes
+	private class MappingScorer extends ChunkedScorer
 	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
-	    {
-			source = s;
-	        target = t;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoTerms(source,target));
-        }
+		@Override
+		protected double score(int source, int target)
+		{
+			return mapTwoTerms(source,target);
+		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Per-run cache of the radius neighborhoods (ancestors and descendants        *
+* grouped by distance) of the classes in the RelationshipMap. It is a dense   *
+* array indexed by URIMap index, so it is bounded by the number of entities,  *
+* and it is safe to share between the threads of a matcher.                   *
+******************************************************************************/
+package aml.match;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import aml.ontology.AbstractRelationshipMap;
+
+public class NeighborhoodCache
+{
+
+//Attributes
+
+	private AbstractRelationshipMap rels;
+	//The maximum distance of the neighborhoods
+	private int radius;
+	//The neighborhoods, indexed by class index
+	private Neighborhood[] cache;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty NeighborhoodCache
+	 * @param rels: the RelationshipMap from which to get the neighborhoods
+	 * @param radius: the maximum distance of the neighborhoods
+	 * @param size: the maximum class index to cache (typically the size of the URIMap)
+	 */
+	public NeighborhoodCache(AbstractRelationshipMap rels, int radius, int size)
+	{
+		this.rels = rels;
+		this.radius = radius;
+		cache = new Neighborhood[size+1];
+	}
+
+//Public Methods
+
+	/**
+	 * Discards all cached neighborhoods
+	 */
+	public void clear()
+	{
+		Arrays.fill(cache, null);
+	}
+
+	/**
+	 * @param classId: the index of the class
+	 * @return the neighborhood of the class within the radius of this cache
+	 */
+	public Neighborhood get(int classId)
+	{
+		if(classId >= cache.length)
+			return new Neighborhood(classId);
+		//Neighborhoods are immutable, so concurrent threads computing the
+		//same neighborhood at the same time is harmless
+		Neighborhood n = cache[classId];
+		if(n == null)
+		{
+			n = new Neighborhood(classId);
+			cache[classId] = n;
+		}
+		return n;
+	}
+
+	/**
+	 * @return the maximum distance of the neighborhoods in this cache
+	 */
+	public int getRadius()
+	{
+		return radius;
+	}
+
+	/**
+	 * The ancestors and descendants of a class up to the radius of the cache,
+	 * grouped by distance (a class related to the center through relationships
+	 * with different distances is listed once per distance)
+	 */
+	public class Neighborhood
+	{
+		//The ancestors and descendants at each distance (index 0 is distance 1)
+		private final int[][] ancestors;
+		private final int[][] descendants;
+		//All ancestors and descendants, in increasing order of distance
+		private final int[] allAncestors;
+		private final int[] allDescendants;
+
+		private Neighborhood(int classId)
+		{
+			ancestors = new int[radius][];
+			descendants = new int[radius][];
+			int ancCount = 0;
+			int descCount = 0;
+			//The classes are kept in the iteration order of the sets rather
+			//than in id order (as in getAncestorArray), since the SSMKernel
+			//sums the contributions in this order, and a different order can
+			//change the last bits of the scores
+			for(int r = 1; r <= radius; r++)
+			{
+				ancestors[r-1] = toArray(rels.getAncestors(classId,r));
+				ancCount += ancestors[r-1].length;
+				descendants[r-1] = toArray(rels.getDescendants(classId,r));
+				descCount += descendants[r-1].length;
+			}
+			allAncestors = flatten(ancestors,ancCount);
+			allDescendants = flatten(descendants,descCount);
+		}
+
+		/**
+		 * @return the ancestors of the class up to the radius
+		 */
+		public int[] getAncestors()
+		{
+			return allAncestors;
+		}
+
+		/**
+		 * @param distance: the distance to the class, in [1,radius]
+		 * @return the ancestors of the class at the given distance
+		 */
+		public int[] getAncestors(int distance)
+		{
+			return ancestors[distance-1];
+		}
+
+		/**
+		 * @return the descendants of the class up to the radius
+		 */
+		public int[] getDescendants()
+		{
+			return allDescendants;
+		}
+
+		/**
+		 * @param distance: the distance to the class, in [1,radius]
+		 * @return the descendants of the class at the given distance
+		 */
+		public int[] getDescendants(int distance)
+		{
+			return descendants[distance-1];
+		}
+
+		private int[] toArray(Set<Integer> set)
+		{
+			int[] array = new int[set.size()];
+			int i = 0;
+			for(Integer j : set)
+				array[i++] = j;
+			return array;
+		}
+
+		private int[] flatten(int[][] arrays, int count)
+		{
+			int[] array = new int[count];
+			int i = 0;
+			for(int[] a : arrays)
+			{
+				System.arraycopy(a, 0, array, i, a.length);
+				i += a.length;
+			}
+			return array;
+		}
+	}
+}
@@ -24,7 +24,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import aml.AML;
-import aml.ontology.RelationshipMap;
+import aml.ontology.AbstractRelationshipMap;
 import aml.settings.EntityType;
 import aml.util.ISub;
 import aml.util.Similarity;
@@ -45,7 +45,7 @@ public class ProcessMatcher implements PrimaryMatcher
 	private static final EntityType[] SUPPORT = {EntityType.INDIVIDUAL};
 	private Set<String> stopSet;
 	private AML aml;
-	private RelationshipMap rels;
+	private AbstractRelationshipMap rels;
 	
 //Constructors
 	
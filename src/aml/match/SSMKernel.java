@@ -0,0 +1,366 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Scoring kernel of the Semantic Similarity Matcher. The IC, measure,         *
+* weighting and final scoring of an SSMConfig are resolved once, and the      *
+* contributions of the ancestors or descendants of a pair of classes are      *
+* computed over primitive arrays with a running sum, in the same order and    *
+* with the same operations as the per-pair computation they replace.          *
+******************************************************************************/
+package aml.match;
+
+import aml.ontology.ICTable;
+import aml.settings.SSMConfig;
+import aml.settings.SemanticSimilarity;
+
+public class SSMKernel
+{
+
+//Attributes
+
+	//The semantic similarity measures
+	private static final int ZERO = 0;
+	private static final int RESNIK = 1;
+	private static final int LIN = 2;
+	private static final int JC = 3;
+	//The weightings and final scorings
+	private static final int NONE = 0;
+	private static final int TCONORM = 1;
+	private static final int AVERAGE = 2;
+	//The resolved settings
+	private final int measure;
+	private final boolean seco;
+	private final int weighting;
+	private final int finalScore;
+
+//Constructors
+
+	/**
+	 * Constructs a new SSMKernel for the given configuration
+	 * @param config: the configuration of the Semantic Similarity Matcher
+	 */
+	public SSMKernel(SSMConfig config)
+	{
+		SemanticSimilarity m = config.getSemanticMeasure();
+		SemanticSimilarity ic = config.getIC();
+		seco = ic.equals(SemanticSimilarity.icSECO);
+		//Resnik's measure uses Resnik's IC with any IC other than Seco's
+		if(m.equals(SemanticSimilarity.RESNIK))
+			measure = RESNIK;
+		else if(!seco && !ic.equals(SemanticSimilarity.icRESNIK))
+			measure = ZERO;
+		else if(m.equals(SemanticSimilarity.LIN))
+			measure = LIN;
+		else if(m.equals(SemanticSimilarity.JC))
+			measure = JC;
+		else
+			measure = ZERO;
+		SemanticSimilarity w = config.getWeighting();
+		if(w.equals(SemanticSimilarity.WeightTCONORM))
+			weighting = TCONORM;
+		else if(w.equals(SemanticSimilarity.WeightAVERAGE))
+			weighting = AVERAGE;
+		else
+			weighting = NONE;
+		SemanticSimilarity f = config.getFinalScore();
+		if(f.equals(SemanticSimilarity.FinalTCONORM))
+			finalScore = TCONORM;
+		else if(f.equals(SemanticSimilarity.FinalAVERAGE))
+			finalScore = AVERAGE;
+		else
+			finalScore = NONE;
+	}
+
+//Public Methods
+
+	/**
+	 * Computes the contribution of the ancestors of a pair of classes,
+	 * all weighted by the lower threshold similarity of the pair (each
+	 * class is only compared with its own ancestors, which are their MICA,
+	 * so no MICA lookup is needed)
+	 * @param lower: the lower threshold similarity of the pair
+	 * @param sourceIC: the IC of the source classes
+	 * @param targetIC: the IC of the target classes
+	 * @param sourceId: the index of the source class
+	 * @param targetId: the index of the target class
+	 * @param sources: the ancestors of the source class
+	 * @param targets: the ancestors of the target class
+	 * @return the semantic similarity of the pair given its ancestors
+	 */
+	public double ancestorScore(double lower, ICTable sourceIC, ICTable targetIC,
+			int sourceId, int targetId, int[] sources, int[] targets)
+	{
+		if(weighting == NONE)
+			return lower;
+		double[] src = new double[sources.length];
+		for(int i = 0; i < sources.length; i++)
+			src[i] = semanticSimilarity(sourceIC, sources[i], sourceId);
+		double[] tgt = new double[targets.length];
+		for(int j = 0; j < targets.length; j++)
+			tgt[j] = semanticSimilarity(targetIC, targets[j], targetId);
+		double w = lower / Math.min(sources.length, targets.length);
+		double sum = 0;
+		int count = 0;
+		if(weighting == TCONORM)
+		{
+			for(int i = 0; i < src.length; i++)
+			{
+				double a = src[i];
+				for(int j = 0; j < tgt.length; j++)
+				{
+					double v = weightTConorm(w, a, tgt[j]);
+					if(v > 0)
+					{
+						sum = v + sum;
+						count++;
+					}
+				}
+			}
+		}
+		else
+		{
+			for(int i = 0; i < src.length; i++)
+			{
+				double a = src[i];
+				for(int j = 0; j < tgt.length; j++)
+				{
+					double v = weightAverage(w, a, tgt[j]);
+					if(v > 0)
+					{
+						sum = v + sum;
+						count++;
+					}
+				}
+			}
+		}
+		return finalScore(sum, count, lower);
+	}
+
+	/**
+	 * Estimates an upper bound of ancestorScore() for a pair of classes,
+	 * which holds when the semantic similarities are in [0,1], i.e., with
+	 * Seco's IC (Resnik's IC is unbounded)
+	 * @param lower: the lower threshold similarity of the pair
+	 * @param minim: the minimum of the number of ancestors of the classes
+	 * @return the upper bound, or infinity if the similarities are not bounded
+	 */
+	public double ancestorBound(double lower, int minim)
+	{
+		if(!seco || lower > 1)
+			return Double.POSITIVE_INFINITY;
+		if(minim == 0 || weighting == NONE)
+			return lower;
+		//Each contribution is at most the weight of the ancestors
+		return finalBound(lower / minim, lower);
+	}
+
+	/**
+	 * Computes the contribution of the descendants of a pair of classes,
+	 * each pair of descendants weighted by its own lower threshold similarity
+	 * @param lower: the lower threshold similarity of the pair
+	 * @param lookup: the lower threshold similarities
+	 * @param sourceIC: the IC of the source classes
+	 * @param targetIC: the IC of the target classes
+	 * @param sourceId: the index of the source class
+	 * @param targetId: the index of the target class
+	 * @param sources: the descendants of the source class
+	 * @param targets: the descendants of the target class
+	 * @return the semantic similarity of the pair given its descendants
+	 */
+	public double descendantScore(double lower, SimilarityLookup lookup, ICTable sourceIC,
+			ICTable targetIC, int sourceId, int targetId, int[] sources, int[] targets)
+	{
+		if(weighting == NONE)
+			return lower;
+		double[] tgt = new double[targets.length];
+		for(int j = 0; j < targets.length; j++)
+			tgt[j] = semanticSimilarity(targetIC, targetId, targets[j]);
+		int minim = Math.min(sources.length, targets.length);
+		double[] w = new double[targets.length];
+		double sum = 0;
+		int count = 0;
+		for(int i = 0; i < sources.length; i++)
+		{
+			int s = sources[i];
+			double a = semanticSimilarity(sourceIC, sourceId, s);
+			for(int j = 0; j < targets.length; j++)
+				w[j] = lookup.getSimilarity(s, targets[j]) / minim;
+			if(weighting == TCONORM)
+			{
+				for(int j = 0; j < tgt.length; j++)
+				{
+					double v = weightTConorm(w[j], a, tgt[j]);
+					if(v > 0)
+					{
+						sum = v + sum;
+						count++;
+					}
+				}
+			}
+			else
+			{
+				for(int j = 0; j < tgt.length; j++)
+				{
+					double v = weightAverage(w[j], a, tgt[j]);
+					if(v > 0)
+					{
+						sum = v + sum;
+						count++;
+					}
+				}
+			}
+		}
+		return finalScore(sum, count, lower);
+	}
+
+	/**
+	 * Estimates an upper bound of descendantScore() for a pair of classes,
+	 * which holds when the semantic similarities are in [0,1], i.e., with
+	 * Seco's IC (Resnik's IC is unbounded)
+	 * @param lower: the lower threshold similarity of the pair
+	 * @param maxLower: the maximum lower threshold similarity of any pair
+	 * @param minim: the minimum of the number of descendants of the classes
+	 * @return the upper bound, or infinity if the similarities are not bounded
+	 */
+	public double descendantBound(double lower, double maxLower, int minim)
+	{
+		if(!seco || lower > 1 || maxLower > 1)
+			return Double.POSITIVE_INFINITY;
+		if(minim == 0 || weighting == NONE)
+			return lower;
+		//Each contribution is at most the weight of the best pair of descendants
+		return finalBound(maxLower / minim, lower);
+	}
+
+	/**
+	 * Computes the semantic similarity between a class and its ancestor
+	 * The most informative common ancestor (MICA) of the two classes is
+	 * the ancestor itself, since the IC never increases up the hierarchy,
+	 * so these are the exact Resnik, Lin and Jiang-Conrath measures
+	 * @param ic: the IC of the classes
+	 * @param ancestor: the index of the ancestor class
+	 * @param descendant: the index of the descendant class
+	 * @return the semantic similarity between the classes
+	 */
+	public double semanticSimilarity(ICTable ic, int ancestor, int descendant)
+	{
+		if(measure == RESNIK)
+			return ic(ic, ancestor);
+		if(measure == LIN)
+		{
+			double icAnc = ic(ic, ancestor);
+			return (2 * icAnc) / (ic(ic, descendant) + icAnc);
+		}
+		if(measure == JC)
+		{
+			double icAnc = ic(ic, ancestor);
+			double dJianCon = ic(ic, descendant) + icAnc - 2 * icAnc;
+			return 1 / (dJianCon + 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * Weights a similarity by the semantic similarities of the source and target
+	 * @param initialSimilarity: the similarity to weight
+	 * @param source: the semantic similarity on the source side
+	 * @param target: the semantic similarity on the target side
+	 * @return the weighted similarity
+	 */
+	public double weight(double initialSimilarity, double source, double target)
+	{
+		if(weighting == TCONORM)
+			return weightTConorm(initialSimilarity, source, target);
+		if(weighting == AVERAGE)
+			return weightAverage(initialSimilarity, source, target);
+		return 0;
+	}
+
+	/**
+	 * @param initialSimilarity: the similarity to weight
+	 * @param source: the semantic similarity on the source side
+	 * @param target: the semantic similarity on the target side
+	 * @return the similarity weighted by the average of the semantic similarities
+	 */
+	public static double weightAverage(double initialSimilarity, double source, double target)
+	{
+		return ((initialSimilarity / 2) * source) + ((initialSimilarity / 2) * target);
+	}
+
+	/**
+	 * @param initialSimilarity: the similarity to weight
+	 * @param source: the semantic similarity on the source side
+	 * @param target: the semantic similarity on the target side
+	 * @return the similarity weighted by the t-conorm of the semantic similarities
+	 */
+	public static double weightTConorm(double initialSimilarity, double source, double target)
+	{
+		return tconorm(source, target) * initialSimilarity;
+	}
+
+	/**
+	 * @return the probabilistic sum (t-conorm) of x and y
+	 */
+	public static double tconorm(double x, double y)
+	{
+		return (x + y - x * y);
+	}
+
+	/**
+	 * Lookup of the lower threshold similarity of a pair of classes
+	 */
+	public interface SimilarityLookup
+	{
+		/**
+		 * @param sourceId: the index of the source class
+		 * @param targetId: the index of the target class
+		 * @return the similarity between the classes, or 0 if they are not mapped
+		 */
+		public double getSimilarity(int sourceId, int targetId);
+	}
+
+//Private Methods
+
+	//Bounds the final score given a bound of the average contribution (the
+	//final scorings are non-decreasing in the average contribution), or of
+	//the lower threshold similarity alone if there are no contributions
+	private double finalBound(double average, double lower)
+	{
+		double bound = 0;
+		if(finalScore == TCONORM)
+			bound = tconorm(average, lower);
+		else if(finalScore == AVERAGE)
+			bound = (average + lower) / 2;
+		return Math.max(bound, lower);
+	}
+
+	//Combines the contributions with the lower threshold similarity
+	private double finalScore(double sum, int count, double lower)
+	{
+		if(count == 0)
+			return lower;
+		if(finalScore == TCONORM)
+			return tconorm(sum / count, lower);
+		if(finalScore == AVERAGE)
+			return (sum / count + lower) / 2;
+		return 0;
+	}
+
+	private double ic(ICTable ic, int classId)
+	{
+		if(seco)
+			return ic.getSeco(classId);
+		return ic.getResnik(classId);
+	}
+}
@@ -0,0 +1,175 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Evaluates several configurations of the Semantic Similarity Matcher in      *
+* parallel against one loaded pair of ontologies. All configurations extend   *
+* the same seed Alignment and share the same lower threshold Alignment, the   *
+* RelationshipMap and the Lexicons, which are only read during the sweep.     *
+******************************************************************************/
+package aml.match;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import aml.settings.EntityType;
+import aml.settings.SSMConfig;
+import aml.settings.SemanticSimilarity;
+
+public class SSMParameterSweep
+{
+
+//Attributes
+
+	//The Alignment to extend and the lower threshold Alignment
+	private Alignment seed;
+	private Alignment lower;
+	//The threshold for the extension
+	private double thresh;
+	//The available CPU threads
+	private int threads;
+
+//Constructors
+
+	/**
+	 * Constructs a new SSMParameterSweep
+	 * @param seed: the Alignment to extend with each configuration
+	 * @param lower: the lower threshold Alignment used by the matcher
+	 * @param thresh: the similarity threshold for the extension
+	 */
+	public SSMParameterSweep(Alignment seed, Alignment lower, double thresh)
+	{
+		this.seed = seed;
+		this.lower = lower;
+		this.thresh = thresh;
+		threads = Runtime.getRuntime().availableProcessors();
+	}
+
+//Public Methods
+
+	/**
+	 * Evaluates the results of a sweep against a reference Alignment
+	 * (each result is merged with the seed Alignment before evaluation)
+	 * @param results: the extension Alignments of each configuration
+	 * @param ref: the reference Alignment
+	 * @return the evaluation of each configuration, as a tab-separated table
+	 */
+	public String evaluate(Map<SSMConfig,Alignment> results, Alignment ref)
+	{
+		String eval = "Configuration\tPrecision\tRecall\tF-measure\tFound\tCorrect\tReference";
+		int total = ref.size() - ref.countConflicts();
+		for(SSMConfig c : results.keySet())
+		{
+			Alignment a = new Alignment(seed);
+			a.addAll(results.get(c));
+			int[] count = a.evaluate(ref);
+			int found = a.size() - count[1];
+			int correct = count[0];
+			double precision = 1.0*correct/found;
+			double recall = 1.0*correct/total;
+			double fMeasure = 2*precision*recall/(precision+recall);
+			eval += "\n" + c + "\t" + Math.round(precision*1000)/10.0 + "%\t" +
+					Math.round(recall*1000)/10.0 + "%\t" + Math.round(fMeasure*1000)/10.0 + "%\t" +
+					found + "\t" + correct + "\t" + total;
+		}
+		return eval;
+	}
+
+	/**
+	 * @param radii: the radius values to combine
+	 * @param ics: the IC values to combine
+	 * @param measures: the semantic similarity measures to combine
+	 * @param strategies: the strategies to combine
+	 * @param weightings: the weightings to combine
+	 * @param finalScores: the final scorings to combine
+	 * @return the list of all combinations of the given settings
+	 */
+	public static List<SSMConfig> getConfigurations(int[] radii, SemanticSimilarity[] ics,
+			SemanticSimilarity[] measures, SemanticSimilarity[] strategies,
+			SemanticSimilarity[] weightings, SemanticSimilarity[] finalScores)
+	{
+		ArrayList<SSMConfig> configs = new ArrayList<SSMConfig>();
+		for(int r : radii)
+			for(SemanticSimilarity ic : ics)
+				for(SemanticSimilarity m : measures)
+					for(SemanticSimilarity s : strategies)
+						for(SemanticSimilarity w : weightings)
+							for(SemanticSimilarity f : finalScores)
+								configs.add(new SSMConfig(r,ic,m,s,w,f));
+		return configs;
+	}
+
+	/**
+	 * Extends the seed Alignment with each of the given configurations,
+	 * running the configurations in parallel
+	 * @param configs: the configurations to run
+	 * @return the extension Alignment of each configuration (in the given order)
+	 */
+	public Map<SSMConfig,Alignment> run(List<SSMConfig> configs)
+	{
+		ArrayList<SweepTask> tasks = new ArrayList<SweepTask>();
+		for(SSMConfig c : configs)
+			tasks.add(new SweepTask(c));
+		List<Future<Alignment>> results;
+		ExecutorService exec = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, tasks.size())));
+		try
+		{
+			results = exec.invokeAll(tasks);
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+			results = new ArrayList<Future<Alignment>>();
+		}
+		exec.shutdown();
+		LinkedHashMap<SSMConfig,Alignment> sweep = new LinkedHashMap<SSMConfig,Alignment>();
+		for(int i = 0; i < results.size(); i++)
+		{
+			try
+			{
+				sweep.put(configs.get(i), results.get(i).get());
+			}
+			catch(Exception e)
+			{
+				e.printStackTrace();
+			}
+		}
+		return sweep;
+	}
+
+//Private Methods
+
+	//Callable class for running one configuration
+	private class SweepTask implements Callable<Alignment>
+	{
+		private SSMConfig config;
+
+		SweepTask(SSMConfig c)
+		{
+			config = c;
+		}
+
+		@Override
+		public Alignment call() throws UnsupportedEntityTypeException
+		{
+			SemanticEqMatcher ssm = new SemanticEqMatcher(lower, config);
+			return ssm.extendAlignment(seed, EntityType.CLASS, thresh);
+		}
+	}
+}
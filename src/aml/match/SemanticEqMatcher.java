@@ -19,103 +19,107 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Arrays;
+import java.util.Set;
 
 import aml.AML;
-import aml.ontology.RelationshipMap;
+import aml.match.NeighborhoodCache.Neighborhood;
+import aml.ontology.AbstractRelationshipMap;
+import aml.ontology.ICTable;
 import aml.settings.EntityType;
+import aml.settings.SSMConfig;
 import aml.settings.SemanticSimilarity;
-import aml.util.Table2Set;
+import aml.util.PairMap;
+import aml.util.PairSet;
 
 public class SemanticEqMatcher implements SecondaryMatcher {
 	// Attributes
-	// Semantic Similarity measures, way of weighting and type of computing
-	// final score
-	public static SemanticSimilarity semanticMeasure;
-	public static SemanticSimilarity IC;
-	public static SemanticSimilarity weighting;
-	public static SemanticSimilarity finalScore;
-
-	// Strategy and radius
-	private static SemanticSimilarity strat;
-	private static int radius;
-
-	private static final String DESCRIPTION = "Matches entities by computing the maximum\n"
-			+ "Semantic similarity between the entries, using " + IC + "'s IC \n" + "and " + semanticMeasure
-			+ "'s semantic similarity measure. Using " + strat + " strategy\n" + "and radius " + radius;
+	// Configuration of the matcher: radius, semantic similarity measure, IC,
+	// strategy, way of weighting and type of computing final score
+	private final SSMConfig config;
+
 	private static final String NAME = "String Matcher";
+	// Margin for the upper bound of the scores, which are rounded before
+	// being compared with the threshold
+	private static final double BOUND_MARGIN = 0.0001;
+	// Estimated heap used per queued candidate pair (hash slots, sorted copy
+	// and scoring arrays), to size the batches of the streaming mode
+	private static final long BYTES_PER_PAIR = 48;
 	private static final EntityType[] SUPPORT = { EntityType.CLASS, EntityType.INDIVIDUAL, EntityType.DATA,
 			EntityType.OBJECT };
 	// Links to the AML class, relationshipMap, the source and target maximum
 	// number
 	// of classes
 	private AML aml;
-	private RelationshipMap rels;
+	private AbstractRelationshipMap rels;
 	private int sClasses;
 	private int tClasses;
+	// Information content of the source and target classes, computed once
+	// per class at the start of each run
+	private ICTable sourceIC;
+	private ICTable targetIC;
+	// Radius neighborhoods of the classes, shared by the candidate generation
+	// and the scoring of each candidate pair
+	private NeighborhoodCache neighborhoods;
 	// Alignments needed as input the one to be extended and the one with lower
 	// threshold
 	private Alignment input;
 	private Alignment alowerTreshold;
-
-	// The available CPU threads
-	private int threads;
+	// Read-only index of the lower threshold similarities, built at the
+	// start of each run
+	private SimilarityIndex lowerIndex;
+	// Counters of the candidate pairs of the last run: the pairs enumerated
+	// from the neighborhoods, the ones pruned because they can't reach the
+	// threshold, and the ones that were actually scored
+	private long generatedPairs;
+	private long prunedPairs;
+	private long scoredPairs;
+	// Memory budget of the streaming mode in bytes (0 to score all candidates
+	// in a single batch)
+	private long memoryBudget = 0;
+	// Scoring kernel, with the settings of the configuration resolved
+	private final SSMKernel kernel;
+	// Incremental mode: the scores of the pairs scored in previous runs are
+	// kept (they depend only on the ontologies and the lower threshold
+	// alignment, not on the input), together with the lower threshold
+	// similarities they were computed with and the entity type of the run
+	private boolean incremental = false;
+	private PairMap scoreCache;
+	private PairMap scoredLower;
+	private EntityType scoredType;
+	// The class seeds (input mappings), threshold and result of the previous
+	// run, which the next run updates from the changes in the seeds and in
+	// the lower threshold alignment
+	private PairSet seeds;
+	private double extendedThresh;
+	private Alignment extended;
 
 	// Constructors
 	// By default strategy Maximum
 	public SemanticEqMatcher() {
+		this(null, new SSMConfig());
+	}
+
+	public SemanticEqMatcher(Alignment aLowerThresh, SSMConfig config) {
 		aml = AML.getInstance();
 		rels = aml.getRelationshipMap();
-		threads = Runtime.getRuntime().availableProcessors();
-		radius = 3;
-		IC = SemanticSimilarity.icSECO;
-		semanticMeasure = SemanticSimilarity.RESNIK;
-		strat = SemanticSimilarity.MAXIMUM;
-		weighting = SemanticSimilarity.WeightTCONORM;
-		finalScore = SemanticSimilarity.FinalAVERAGE;
+		alowerTreshold = aLowerThresh;
+		this.config = config;
+		kernel = new SSMKernel(config);
 	}
 
 	// radius and arguments in the order: IC, semantic measure, strategy,
 	// weighting, final scoring.
 	public SemanticEqMatcher(Alignment aLowerThresh, int rad, SemanticSimilarity... args) {
-		this();
-
-		radius = rad;
-		alowerTreshold = aLowerThresh;
-		if (args.length == 5)
-			finalScore = args[4];
-		if (args.length >= 4)
-			weighting = args[3];
-		if (args.length >= 3)
-			strat = args[2];
-		if (args.length >= 2)
-			semanticMeasure = args[1];
-		if (args.length >= 1)
-			IC = args[0];
-
+		this(aLowerThresh, new SSMConfig(rad, args));
 	}
 
 	// arguments in the order: IC, semantic measure, strategy,
 	// weighting, final scoring.
 	public SemanticEqMatcher(Alignment aLowerThresh, SemanticSimilarity... args) {
-		this();
-		alowerTreshold = aLowerThresh;
-		if (args.length == 5)
-			finalScore = args[4];
-		if (args.length >= 4)
-			weighting = args[3];
-		if (args.length >= 3)
-			strat = args[2];
-		if (args.length >= 2)
-			semanticMeasure = args[1];
-		if (args.length >= 1)
-			IC = args[0];
+		this(aLowerThresh, new SSMConfig(args));
 	}
+
 	// Public Methods
 
 	@Override
@@ -125,54 +129,187 @@ public class SemanticEqMatcher implements SecondaryMatcher {
 		long time = System.currentTimeMillis() / 1000;
 
 		input = a;
-		// get maximum number of entities from that type to compute IC
-		tClasses = aml.getTarget().count(e);
-		sClasses = aml.getSource().count(e);
+		// The streaming mode keeps nothing between runs, so that the heap
+		// stays flat, even if the matcher is incremental
+		boolean caching = incremental && memoryBudget == 0;
+		if (caching && scoreCache != null
+				&& (rels != aml.getRelationshipMap() || !e.equals(scoredType)))
+			reset();
+		rels = aml.getRelationshipMap();
+		if (!caching || scoreCache == null) {
+			// get maximum number of entities from that type to compute IC
+			tClasses = aml.getTarget().count(e);
+			sClasses = aml.getSource().count(e);
+			sourceIC = new ICTable(rels, aml.getSource().getEntities(e), sClasses);
+			targetIC = new ICTable(rels, aml.getTarget().getEntities(e), tClasses);
+
+			neighborhoods = new NeighborhoodCache(rels, config.getRadius(), aml.getURIMap().size());
+		}
+
+		lowerIndex = new SimilarityIndex(alowerTreshold);
+		generatedPairs = 0;
+		prunedPairs = 0;
+		scoredPairs = 0;
+		long queuedPairs = 0;
+		// The pairs whose candidacy or score may have changed since the
+		// previous run, if its result can be updated
+		PairSet affected = null;
+		if (caching) {
+			if (scoreCache == null) {
+				scoreCache = new PairMap();
+				scoredType = e;
+			}
+			if (extended != null && thresh == extendedThresh)
+				affected = new PairSet();
+			invalidateLowerChanges(affected);
+		}
+		if (affected != null) {
+			queuedPairs = updateExtension(affected, thresh);
+			System.out.println("Candidate pairs: " + generatedPairs + " affected, " + prunedPairs + " pruned, "
+					+ queuedPairs + " queued, " + scoredPairs + " scored");
+			time = System.currentTimeMillis() / 1000 - time;
+			System.out.println("Finished in " + time + " seconds");
+			return new Alignment(extended);
+		}
 
-		Table2Set<Integer, Integer> toMap = new Table2Set<Integer, Integer>();
+		// In streaming mode, the candidates are scored in batches that fit the
+		// memory budget, and only the passing mappings are kept between batches
+		long batchSize = Long.MAX_VALUE;
+		if (memoryBudget > 0)
+			batchSize = Math.max(1, memoryBudget / BYTES_PER_PAIR);
+		Alignment maps = null;
+		PairSet toMap = new PairSet();
 		for (Mapping m : a) {
 
 			if (!aml.getURIMap().isClass(m.getSourceId()))
 				continue;
-			// Lists of possible pairs to be mapped
-			List<Integer> sourceSubClasses = new ArrayList<Integer>();
-			List<Integer> targetSubClasses = new ArrayList<Integer>();
-			List<Integer> sourceSuperClasses = new ArrayList<Integer>();
-			List<Integer> targetSuperClasses = new ArrayList<Integer>();
-
-			addAllInRadius(radius, m.getSourceId(), m.getTargetId(), sourceSuperClasses, targetSuperClasses,
-					sourceSubClasses, targetSubClasses);
-
-			for (Integer s : sourceSubClasses) {
-				if (input.containsSource(s))
-					continue;
-				for (Integer t : targetSubClasses) {
-					if (input.containsTarget(t))
-						continue;
-					toMap.add(s, t);
-				}
-			}
-
-			for (Integer s : sourceSuperClasses) {
-				if (input.containsSource(s))
-					continue;
-				for (Integer t : targetSuperClasses) {
-					if (input.containsTarget(t))
-						continue;
-					toMap.add(s, t);
-				}
+			addCandidates(toMap, m, thresh);
+			if (toMap.size() >= batchSize) {
+				queuedPairs += toMap.size();
+				maps = addBatch(maps, toMap, thresh, caching);
+				toMap = new PairSet();
+				neighborhoods.clear();
 			}
 		}
-		Alignment maps = mapInParallel(toMap, thresh);
+		queuedPairs += toMap.size();
+		maps = addBatch(maps, toMap, thresh, caching);
+		System.out.println("Candidate pairs: " + generatedPairs + " generated, " + prunedPairs + " pruned, "
+				+ queuedPairs + " queued, " + scoredPairs + " scored");
+		// Release the ICs, neighborhoods and indexes if they aren't reused,
+		// or keep the result to update on the next run
+		if (!caching)
+			release();
+		else {
+			seeds = classSeeds(a);
+			extendedThresh = thresh;
+			extended = maps;
+			maps = new Alignment(extended);
+		}
 		time = System.currentTimeMillis() / 1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 
 		return maps;
 	}
 
+	/**
+	 * @return the memory budget of the streaming mode in bytes (0 if the
+	 *         matcher doesn't stream)
+	 */
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * @return the number of candidate pairs enumerated in the last run
+	 */
+	public long getGeneratedPairs() {
+		return generatedPairs;
+	}
+
+	/**
+	 * @return the number of candidate pairs pruned in the last run
+	 */
+	public long getPrunedPairs() {
+		return prunedPairs;
+	}
+
+	/**
+	 * @return the number of candidate pairs scored in the last run
+	 */
+	public long getScoredPairs() {
+		return scoredPairs;
+	}
+
+	/**
+	 * @return the configuration of this matcher
+	 */
+	public SSMConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @return whether this matcher reuses the scores of previous runs
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Discards the scores, ICs and neighborhoods kept from previous runs
+	 * in incremental mode
+	 */
+	public void reset() {
+		scoreCache = null;
+		scoredLower = null;
+		scoredType = null;
+		seeds = null;
+		extended = null;
+		release();
+	}
+
+	/**
+	 * Sets whether this matcher reuses the scores and result of previous runs,
+	 * so that only the candidate pairs around the seeds added or removed since
+	 * the previous run (with the same threshold), or that are affected by
+	 * changes in the lower threshold alignment, are generated and scored
+	 * @param incremental: whether to keep the scores between runs
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		if (!incremental)
+			reset();
+	}
+
+	/**
+	 * Sets the memory budget of the streaming mode: the input mappings are
+	 * processed in batches whose candidate pairs fit the budget, and each batch
+	 * is scored and discarded before the next one is generated (pairs reached
+	 * from mappings in different batches may be scored more than once). No
+	 * scores are kept between runs while streaming, even in incremental mode
+	 * @param bytes: the memory budget in bytes, or 0 to disable streaming
+	 */
+	public void setMemoryBudget(long bytes) {
+		memoryBudget = Math.max(0, bytes);
+		if (memoryBudget > 0)
+			reset();
+	}
+
+	/**
+	 * Sets the lower threshold alignment (in incremental mode, the scores
+	 * affected by its differences to the previous one are discarded on the
+	 * next run)
+	 * @param aLowerThresh: the lower threshold alignment
+	 */
+	public void setLowerThresholdAlignment(Alignment aLowerThresh) {
+		alowerTreshold = aLowerThresh;
+	}
+
 	@Override
 	public String getDescription() {
-		return DESCRIPTION;
+		return "Matches entities by computing the maximum\n" + "Semantic similarity between the entries, using "
+				+ config.getIC() + "'s IC \n" + "and " + config.getSemanticMeasure()
+				+ "'s semantic similarity measure. Using " + config.getStrategy() + " strategy\n" + "and radius "
+				+ config.getRadius();
 	}
 
 	@Override
@@ -199,305 +336,415 @@ public class SemanticEqMatcher implements SecondaryMatcher {
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 
-	// Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer, Integer> toMap, double thresh) {
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for (Integer i : toMap.keySet())
-			for (Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i, j));
-		List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try {
-			results = exec.invokeAll(tasks);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-			results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for (Future<Mapping> fm : results) {
-			try {
-				Mapping m = fm.get();
-				if (m.getSimilarity() >= thresh)
-					maps.add(m);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
+	// Adds the candidates from the neighborhoods of a mapping
+	private void addCandidates(PairSet toMap, Mapping m, double thresh) {
+		// Neighborhoods of possible pairs to be mapped
+		Neighborhood sourceNeighborhood = neighborhoods.get(m.getSourceId());
+		Neighborhood targetNeighborhood = neighborhoods.get(m.getTargetId());
 
-		return maps;
+		addCandidates(toMap, unmappedSources(sourceNeighborhood.getDescendants()),
+				unmappedTargets(targetNeighborhood.getDescendants()), thresh);
+		addCandidates(toMap, unmappedSources(sourceNeighborhood.getAncestors()),
+				unmappedTargets(targetNeighborhood.getAncestors()), thresh);
 	}
 
-	// Computes the semantic similarity between two terms by
-	// checking for mappings between all their ancestors and descendants
-	private double mapTwoTerms(int sId, int tId) {
-		// similarity for the pair sId and tId from the lower threshold
-		// alignment
-		double lowerThreshSimilarity = alowerTreshold.getSimilarity(sId, tId);
-		if (lowerThreshSimilarity > 0) {
-
-			// Lists with the neighborhood of sId an tId to compute the
-			// surrounding semantic similarities
-			List<Integer> sourceSubClasses = new ArrayList<Integer>();
-			List<Integer> targetSubClasses = new ArrayList<Integer>();
-			List<Integer> sourceSuperClasses = new ArrayList<Integer>();
-			List<Integer> targetSuperClasses = new ArrayList<Integer>();
-
-			addAllInRadius(radius, sId, tId, sourceSuperClasses, targetSuperClasses, sourceSubClasses,
-					targetSubClasses);
-
-			// final semantic similarity scores for the ancestors (finAnc) and
-			// the
-			// descendants (finDesc)
-			double finalAnc = 0;
-			double finalDesc = 0;
-
-			if (!strat.equals(SemanticSimilarity.DESCENDANTS)) {
-
-				finalAnc = semanticSim( lowerThreshSimilarity, sId, tId, sourceSuperClasses,
-						targetSuperClasses, true);
-
-			}
-
-			if (!strat.equals(SemanticSimilarity.ANCESTORS)) {
-
-				finalDesc = semanticSim( lowerThreshSimilarity, sId, tId, sourceSubClasses,
-						targetSubClasses, false);
+	// Scores a batch of candidates and adds the passing mappings to the result
+	// (which is created by the first batch)
+	private Alignment addBatch(Alignment maps, PairSet toMap, double thresh, boolean caching) {
+		Alignment batch;
+		if (caching)
+			batch = mapIncrementally(toMap, thresh);
+		else
+			batch = mapInParallel(toMap, thresh);
+		if (maps == null)
+			return batch;
+		maps.addAll(batch);
+		return maps;
+	}
 
+	// Adds the combinations of the given sources and targets to the candidates,
+	// except those that can't reach the threshold
+	private void addCandidates(PairSet toMap, int[] sources, int[] targets, double thresh) {
+		generatedPairs += (long) sources.length * targets.length;
+		// Pairs without lower threshold similarity always score 0
+		if (thresh <= 0) {
+			for (int s : sources)
+				for (int t : targets)
+					toMap.add(s, t);
+			return;
+		}
+		for (int s : sources) {
+			for (int t : targets) {
+				if (toMap.contains(s, t))
+					continue;
+				double lower = lowerIndex.getSimilarity(s, t);
+				if (lower <= 0 || upperBound(s, t, lower) < thresh - BOUND_MARGIN)
+					prunedPairs++;
+				else
+					toMap.add(s, t);
 			}
-
-			if (strat.equals(SemanticSimilarity.ANCESTORS))
-				return finalAnc;
-			else if (strat.equals(SemanticSimilarity.DESCENDANTS))
-				return finalDesc;
-			else if (strat.equals(SemanticSimilarity.MINIMUM))
-				return Math.min(finalAnc, finalDesc);
-			else if (strat.equals(SemanticSimilarity.MAXIMUM))
-				return Math.max(finalAnc, finalDesc);
-			else
-				return (finalAnc + finalDesc) * 0.5;
 		}
-		return 0;
 	}
 
-	private void addAllInRadius(int radius, int sId, int tId, List<Integer> sourceSuperClasses,
-			List<Integer> targetSuperClasses, List<Integer> sourceSubClasses, List<Integer> targetSubClasses) {
-
-		for (int r = 1; r <= radius; r++) {
-			sourceSuperClasses.addAll(rels.getAncestors(sId, r));
-			targetSuperClasses.addAll(rels.getAncestors(tId, r));
-
-			sourceSubClasses.addAll(rels.getDescendants(sId, r));
-			targetSubClasses.addAll(rels.getDescendants(tId, r));
-		}
-
+	// Estimates an upper bound of the score of a pair of classes (or returns
+	// infinity if the score can't be bounded)
+	private double upperBound(int sId, int tId, double lower) {
+		Neighborhood sourceNeighborhood = neighborhoods.get(sId);
+		Neighborhood targetNeighborhood = neighborhoods.get(tId);
+		double boundAnc = kernel.ancestorBound(lower,
+				Math.min(sourceNeighborhood.getAncestors().length, targetNeighborhood.getAncestors().length));
+		double boundDesc = kernel.descendantBound(lower, lowerIndex.getMaxSimilarity(),
+				Math.min(sourceNeighborhood.getDescendants().length, targetNeighborhood.getDescendants().length));
+		if (config.getStrategy().equals(SemanticSimilarity.ANCESTORS))
+			return boundAnc;
+		else if (config.getStrategy().equals(SemanticSimilarity.DESCENDANTS))
+			return boundDesc;
+		else if (config.getStrategy().equals(SemanticSimilarity.MINIMUM))
+			return Math.min(boundAnc, boundDesc);
+		else if (config.getStrategy().equals(SemanticSimilarity.MAXIMUM))
+			return Math.max(boundAnc, boundDesc);
+		else
+			return (boundAnc + boundDesc) * 0.5;
 	}
 
-	private double semanticSim( double similarityLowerThresh, int sId, int tId,
-			List<Integer> sourceList, List<Integer> targetList, boolean getAncestorsTrue) {
-		List<Double> parentOrChildSimilarity = new ArrayList<Double>();
-		int numberMappings = 0;
-		int minim = Math.min(sourceList.size(), targetList.size());
-
-		for (Integer s : sourceList) {
-			if (getAncestorsTrue) {// i e j sao pais
+	// Filters out the classes that are already mapped as sources in the input
+	private int[] unmappedSources(int[] classes) {
+		int[] unmapped = new int[classes.length];
+		int count = 0;
+		for (int c : classes)
+			if (!input.containsSource(c))
+				unmapped[count++] = c;
+		return Arrays.copyOf(unmapped, count);
+	}
 
-				double semanticSimSource = semanticSimilarity(sClasses, s, sId);
+	// Filters out the classes that are already mapped as targets in the input
+	private int[] unmappedTargets(int[] classes) {
+		int[] unmapped = new int[classes.length];
+		int count = 0;
+		for (int c : classes)
+			if (!input.containsTarget(c))
+				unmapped[count++] = c;
+		return Arrays.copyOf(unmapped, count);
+	}
 
-				for (Integer t : targetList) {
-					double semanticSimTarget = semanticSimilarity(tClasses, t, tId);
-					// !! Tconorm!!! weightSimilarity
-					double semSim = weightSimilarity(similarityLowerThresh / minim, semanticSimSource,
-							semanticSimTarget);
-					if (semSim > 0) {
+	// Discards the state of a run that isn't reused by the next one
+	private void release() {
+		input = null;
+		sourceIC = null;
+		targetIC = null;
+		neighborhoods = null;
+		lowerIndex = null;
+	}
 
-						parentOrChildSimilarity.add(semSim);
-						numberMappings += 1;
-					}
+	// Adds the pairs of a class with the classes covered by the seeds around
+	// it on the other side, through its ancestors (and their descendants) and
+	// its descendants (and their ancestors)
+	private void addCovered(PairSet affected, int classId, boolean isSource) {
+		Neighborhood neighborhood = neighborhoods.get(classId);
+		addCovered(affected, classId, isSource, neighborhood.getAncestors(), false);
+		addCovered(affected, classId, isSource, neighborhood.getDescendants(), true);
+	}
 
+	private void addCovered(PairSet affected, int classId, boolean isSource, int[] around, boolean up) {
+		for (int c : around) {
+			Set<Integer> mapped = isSource ? input.getSourceMappings(c) : input.getTargetMappings(c);
+			for (Integer m : mapped) {
+				if (isSource ? !seeds.contains(c, m) : !seeds.contains(m, c))
+					continue;
+				Neighborhood neighborhood = neighborhoods.get(m);
+				for (int other : up ? neighborhood.getAncestors() : neighborhood.getDescendants()) {
+					if (isSource)
+						affected.add(classId, other);
+					else
+						affected.add(other, classId);
 				}
+			}
+		}
+	}
 
-			} else {// i e j sao pais
-
-				double semanticSimSource = semanticSimilarity(sClasses, sId, s);
+	// Adds all combinations of the given sources and targets
+	private void addPairs(PairSet affected, int[] sources, int[] targets) {
+		for (int s : sources)
+			for (int t : targets)
+				affected.add(s, t);
+	}
 
-				for (Integer t : targetList) {
-					double semanticSimTarget = semanticSimilarity(tClasses, tId, t);
-					// !! Tconorm!!! weightSimilarity
-					double semSim = weightSimilarity(alowerTreshold.getSimilarity(s, t) / minim, semanticSimSource,
-							semanticSimTarget);
-					if (semSim > 0) {
+	// Adds the pairs that a seed added or removed since the previous run may
+	// affect: those in its neighborhoods, and those of its classes, which
+	// may have become mapped or unmapped in the input
+	private void addSeedChange(PairSet affected, int sourceId, int targetId) {
+		Neighborhood sourceNeighborhood = neighborhoods.get(sourceId);
+		Neighborhood targetNeighborhood = neighborhoods.get(targetId);
+		addPairs(affected, sourceNeighborhood.getDescendants(), targetNeighborhood.getDescendants());
+		addPairs(affected, sourceNeighborhood.getAncestors(), targetNeighborhood.getAncestors());
+		for (Integer t : extended.getSourceMappings(sourceId))
+			affected.add(sourceId, t);
+		for (Integer s : extended.getTargetMappings(targetId))
+			affected.add(s, targetId);
+		if (!input.containsSource(sourceId))
+			addCovered(affected, sourceId, true);
+		if (!input.containsTarget(targetId))
+			addCovered(affected, targetId, false);
+	}
 
-						parentOrChildSimilarity.add(semSim);
-						numberMappings += 1;
-					}
+	// Gets the mappings of the input whose source is a class
+	private PairSet classSeeds(Alignment a) {
+		PairSet classSeeds = new PairSet();
+		for (Mapping m : a)
+			if (aml.getURIMap().isClass(m.getSourceId()))
+				classSeeds.add(m.getSourceId(), m.getTargetId());
+		return classSeeds;
+	}
 
-				}
+	// Discards the cached scores of the pairs that depend on the lower
+	// threshold similarity of (sourceId,targetId): the pair itself and
+	// the pairs of their ancestors within the radius (which are added to
+	// the affected pairs, if given)
+	private void invalidate(int sourceId, int targetId, PairSet affected) {
+		int[] sources = neighborhoods.get(sourceId).getAncestors();
+		int[] targets = neighborhoods.get(targetId).getAncestors();
+		scoreCache.remove(sourceId, targetId);
+		if (affected != null)
+			affected.add(sourceId, targetId);
+		for (int t : targets) {
+			scoreCache.remove(sourceId, t);
+			if (affected != null)
+				affected.add(sourceId, t);
+		}
+		for (int s : sources) {
+			scoreCache.remove(s, targetId);
+			if (affected != null)
+				affected.add(s, targetId);
+			for (int t : targets) {
+				scoreCache.remove(s, t);
+				if (affected != null)
+					affected.add(s, t);
+			}
+		}
+	}
 
+	// Discards the cached scores affected by changes in the lower threshold
+	// alignment since the previous run, and updates the lower threshold
+	// similarities of the changed pairs
+	private void invalidateLowerChanges(PairSet affected) {
+		if (scoredLower == null) {
+			scoredLower = new PairMap();
+			for (Mapping m : alowerTreshold)
+				scoredLower.put(m.getSourceId(), m.getTargetId(), m.getSimilarity());
+			return;
+		}
+		// Mappings added or with a different similarity (get() is NaN for
+		// the pairs that weren't there)
+		for (Mapping m : alowerTreshold) {
+			if (scoredLower.get(m.getSourceId(), m.getTargetId()) != m.getSimilarity()) {
+				invalidate(m.getSourceId(), m.getTargetId(), affected);
+				scoredLower.put(m.getSourceId(), m.getTargetId(), m.getSimilarity());
 			}
 		}
-		double semSimContribuition = 0;
-		if (parentOrChildSimilarity.size() > 0) {
-			for (double s : parentOrChildSimilarity.subList(0, parentOrChildSimilarity.size())) {
-				semSimContribuition = s + semSimContribuition;
+		// Mappings removed, of which there are some only if there are more
+		// pairs than mappings
+		if (scoredLower.size() > alowerTreshold.size()) {
+			for (long p : scoredLower.toSortedArray()) {
+				if (!alowerTreshold.containsMapping(PairSet.first(p), PairSet.second(p))) {
+					invalidate(PairSet.first(p), PairSet.second(p), affected);
+					scoredLower.remove(PairSet.first(p), PairSet.second(p));
+				}
 			}
-
-			double finalSimilarity = 0;
-
-			if (finalScore.equals(SemanticSimilarity.FinalTCONORM))
-				finalSimilarity = tconorm(semSimContribuition / numberMappings, similarityLowerThresh);
-			else if (finalScore.equals(SemanticSimilarity.FinalAVERAGE))
-				finalSimilarity = (semSimContribuition / numberMappings + similarityLowerThresh) / 2;
-			//
-
-			return finalSimilarity;
-
 		}
-
-		return similarityLowerThresh;
 	}
 
-	public double semanticSimilarity(int maxLeaves, int classIdAncestor, int classIdDescendant) {
+	// Checks whether a pair is a candidate of the current run: both classes
+	// are unmapped in the input, the pair is in the neighborhoods of a seed
+	// and it may reach the threshold
+	private boolean isCandidate(int sId, int tId, double thresh) {
+		if (input.containsSource(sId) || input.containsTarget(tId) || !isCovered(sId, tId))
+			return false;
+		if (thresh <= 0)
+			return true;
+		double lower = lowerIndex.getSimilarity(sId, tId);
+		if (lower <= 0 || upperBound(sId, tId, lower) < thresh - BOUND_MARGIN) {
+			prunedPairs++;
+			return false;
+		}
+		return true;
+	}
 
-		if (semanticMeasure.equals(SemanticSimilarity.RESNIK)) {
-			if (IC.equals(SemanticSimilarity.icSECO))
-				return semMeasureResnikSeco(maxLeaves, classIdAncestor);
-			else if (semanticMeasure.equals(SemanticSimilarity.RESNIK))
-				return semMeasureResnikResnik(maxLeaves, classIdAncestor);
-			return 0;
-		} else {
+	// Checks whether a pair is in the descendant or ancestor neighborhoods
+	// of a seed, i.e., whether a seed pairs ancestors or descendants of both
+	// classes
+	private boolean isCovered(int sId, int tId) {
+		Neighborhood sourceNeighborhood = neighborhoods.get(sId);
+		Neighborhood targetNeighborhood = neighborhoods.get(tId);
+		return isCovered(sourceNeighborhood.getAncestors(), targetNeighborhood.getAncestors())
+				|| isCovered(sourceNeighborhood.getDescendants(), targetNeighborhood.getDescendants());
+	}
 
-			if (IC.equals(SemanticSimilarity.icSECO)) {
-				if (semanticMeasure.equals(SemanticSimilarity.LIN))
-					return semMeasureLinSeco(maxLeaves, classIdAncestor, classIdDescendant);
-				else if (semanticMeasure.equals(SemanticSimilarity.JC))
-					return semMeasureJianConSeco(maxLeaves, classIdAncestor, classIdDescendant);
+	private boolean isCovered(int[] sources, int[] targets) {
+		for (int s : sources)
+			for (int t : targets)
+				if (seeds.contains(s, t))
+					return true;
+		return false;
+	}
 
-			} else if (IC.equals(SemanticSimilarity.icRESNIK)) {
-				if (semanticMeasure.equals(SemanticSimilarity.LIN))
-					return semMeasureLinResnik(maxLeaves, classIdAncestor, classIdDescendant);
-				else if (semanticMeasure.equals(SemanticSimilarity.JC))
-					return semMeasureJianConResnik(maxLeaves, classIdAncestor, classIdDescendant);
+	// Maps a set of pairs of classes, scoring only those that have no valid
+	// score from previous runs
+	private Alignment mapIncrementally(PairSet toMap, double thresh) {
+		long[] pairs = toMap.toSortedArray();
+		scoreUncached(pairs);
+		Alignment maps = new Alignment();
+		for (long p : pairs) {
+			double sim = scoreCache.get(PairSet.first(p), PairSet.second(p));
+			if (sim >= thresh)
+				maps.add(PairSet.first(p), PairSet.second(p), sim);
+		}
+		return maps;
+	}
 
+	// Scores in parallel the pairs (sorted) that have no valid score from
+	// previous runs, straight into the score cache
+	private void scoreUncached(long[] pairs) {
+		int[] sources = new int[pairs.length];
+		int[] targets = new int[pairs.length];
+		int count = 0;
+		for (long p : pairs) {
+			if (!scoreCache.contains(PairSet.first(p), PairSet.second(p))) {
+				sources[count] = PairSet.first(p);
+				targets[count++] = PairSet.second(p);
 			}
-			return 0;
-
 		}
+		scoredPairs += count;
+		sources = Arrays.copyOf(sources, count);
+		targets = Arrays.copyOf(targets, count);
+		double[] sims = new MappingScorer().scoreAll(sources, targets);
+		for (int i = 0; i < count; i++)
+			scoreCache.put(sources[i], targets[i], sims[i]);
 	}
 
-	public double icResnik(int classId, int maxLeaves) {
-		int allDescendants = rels.subClassCount(classId, false) + 1;
-		double freqC = allDescendants / maxLeaves;
-		double ic = -Math.log(freqC); // IC
-										// normalizado
-		// System.out.println("ic"+ic);
+	// Updates the result of the previous run to the current seeds, given the
+	// pairs whose score changed with the lower threshold alignment, and
+	// returns the number of pairs that were checked for the threshold
+	private long updateExtension(PairSet affected, double thresh) {
+		PairSet previous = seeds;
+		seeds = classSeeds(input);
+		for (long p : seeds.toSortedArray())
+			if (!previous.contains(PairSet.first(p), PairSet.second(p)))
+				addSeedChange(affected, PairSet.first(p), PairSet.second(p));
+		for (long p : previous.toSortedArray())
+			if (!seeds.contains(PairSet.first(p), PairSet.second(p)))
+				addSeedChange(affected, PairSet.first(p), PairSet.second(p));
+
+		long[] pairs = affected.toSortedArray();
+		generatedPairs = pairs.length;
+		PairSet toMap = new PairSet();
+		for (long p : pairs) {
+			if (isCandidate(PairSet.first(p), PairSet.second(p), thresh))
+				toMap.add(PairSet.first(p), PairSet.second(p));
+			else if (extended.containsMapping(PairSet.first(p), PairSet.second(p)))
+				extended.remove(PairSet.first(p), PairSet.second(p));
+		}
+		long[] queued = toMap.toSortedArray();
+		scoreUncached(queued);
+		for (long p : queued) {
+			int sId = PairSet.first(p);
+			int tId = PairSet.second(p);
+			double sim = scoreCache.get(sId, tId);
+			if (extended.containsMapping(sId, tId)) {
+				if (extended.getSimilarity(sId, tId) == sim)
+					continue;
+				extended.remove(sId, tId);
+			}
+			if (sim >= thresh)
+				extended.add(sId, tId, sim);
+		}
+		return queued.length;
+	}
 
-		return ic;
+	// Maps a set of pairs of classes in parallel, using the shared scoring pool
+	private Alignment mapInParallel(PairSet toMap, double thresh) {
+		scoredPairs += toMap.size();
+		return new MappingScorer().map(toMap, thresh);
 	}
 
-	public double icSeco(int classId, int maxLeaves) {
-		int allDescendants = rels.getDescendants(classId).size() + 1;
+	// Computes the semantic similarity between two terms by
+	// checking for mappings between all their ancestors and descendants
+	private double mapTwoTerms(int sId, int tId) {
+		// similarity for the pair sId and tId from the lower threshold
+		// alignment
+		double lowerThreshSimilarity = lowerIndex.getSimilarity(sId, tId);
+		if (lowerThreshSimilarity > 0) {
 
-		double ic = (double) (Math.log(allDescendants) / Math.log(maxLeaves)); // IC
-																				// normalizado
-		// System.out.println("ic"+ic);
+			// Neighborhoods of sId an tId to compute the surrounding semantic
+			// similarities
+			Neighborhood sourceNeighborhood = neighborhoods.get(sId);
+			Neighborhood targetNeighborhood = neighborhoods.get(tId);
 
-		return (1 - ic);
-	}
+			// final semantic similarity scores for the ancestors (finAnc) and
+			// the
+			// descendants (finDesc)
+			double finalAnc = 0;
+			double finalDesc = 0;
 
-	private double semMeasureResnikSeco(int maxLeaves, int classIdAncestor) {
-		// nao faz sentido pq o mica vai ser o pai...
+			if (!config.getStrategy().equals(SemanticSimilarity.DESCENDANTS)) {
 
-		double simRes = icSeco(classIdAncestor, maxLeaves);
-		return simRes;
-	}
+				finalAnc = kernel.ancestorScore(lowerThreshSimilarity, sourceIC, targetIC, sId, tId,
+						sourceNeighborhood.getAncestors(), targetNeighborhood.getAncestors());
 
-	private double semMeasureLinSeco(int maxLeaves, int classIdAncestor, int classIdDescendant) {
-		// nao faz sentido pq o mica vai ser o pai...
-		double simLin = (2 * icSeco(classIdAncestor, maxLeaves))
-				/ (icSeco(classIdDescendant, maxLeaves) + icSeco(classIdAncestor, maxLeaves));
+			}
 
-		return simLin;
-	}
+			if (!config.getStrategy().equals(SemanticSimilarity.ANCESTORS)) {
 
-	private double semMeasureJianConSeco(int maxLeaves, int classIdAncestor, int classIdDescendant) {
-		// nao faz sentido pq o mica vai ser o pai...
+				finalDesc = kernel.descendantScore(lowerThreshSimilarity, lowerIndex, sourceIC, targetIC, sId,
+						tId, sourceNeighborhood.getDescendants(), targetNeighborhood.getDescendants());
 
-		double dJianCon = icSeco(classIdDescendant, maxLeaves) + icSeco(classIdAncestor, maxLeaves)
-				- 2 * icSeco(classIdAncestor, maxLeaves);
-		double simJianCon = 1 / (dJianCon + 1); // 1 - (dJianCon / 2);// or =
+			}
 
-		return simJianCon;
+			if (config.getStrategy().equals(SemanticSimilarity.ANCESTORS))
+				return finalAnc;
+			else if (config.getStrategy().equals(SemanticSimilarity.DESCENDANTS))
+				return finalDesc;
+			else if (config.getStrategy().equals(SemanticSimilarity.MINIMUM))
+				return Math.min(finalAnc, finalDesc);
+			else if (config.getStrategy().equals(SemanticSimilarity.MAXIMUM))
+				return Math.max(finalAnc, finalDesc);
+			else
+				return (finalAnc + finalDesc) * 0.5;
+		}
+		return 0;
 	}
 
-	private double semMeasureResnikResnik(int maxLeaves, int classIdAncestor) {
-		// nao faz sentido pq o mica vai ser o pai...
-
-		double simRes = icResnik(classIdAncestor, maxLeaves);
-		return simRes;
+	public double semanticSimilarity(ICTable ic, int classIdAncestor, int classIdDescendant) {
+		return kernel.semanticSimilarity(ic, classIdAncestor, classIdDescendant);
 	}
 
-	private double semMeasureLinResnik(int maxLeaves, int classIdAncestor, int classIdDescendant) {
-		// nao faz sentido pq o mica vai ser o pai...
-		double simLin = (2 * icResnik(classIdAncestor, maxLeaves))
-				/ (icResnik(classIdDescendant, maxLeaves) + icResnik(classIdAncestor, maxLeaves));
-
-		return simLin;
+	public double icResnik(int classId, int maxLeaves) {
+		return ICTable.resnik(rels.subClassCount(classId, false), maxLeaves);
 	}
 
-	private double semMeasureJianConResnik(int maxLeaves, int classIdAncestor, int classIdDescendant) {
-		// nao faz sentido pq o mica vai ser o pai...
-
-		double dJianCon = icResnik(classIdDescendant, maxLeaves) + icResnik(classIdAncestor, maxLeaves)
-				- 2 * icResnik(classIdAncestor, maxLeaves);
-		double simJianCon = 1 / (dJianCon + 1); // 1 - (dJianCon / 2);// or =
-
-		return simJianCon;
+	public double icSeco(int classId, int maxLeaves) {
+		return ICTable.seco(rels.getDescendants(classId).size(), maxLeaves);
 	}
 
 	public double weightSimilarity(double initialSimilarity, double semanticSimilaritySource,
 			double semanticSimilarityTarget) {
-
-		if (weighting.equals(SemanticSimilarity.WeightTCONORM)) {
-			return weightSimilarityTConorm(initialSimilarity, semanticSimilaritySource, semanticSimilarityTarget);
-		} else if (weighting.equals(SemanticSimilarity.WeightAVERAGE)) {
-			return weightSimilarityAverage(initialSimilarity, semanticSimilaritySource, semanticSimilarityTarget);
-		}
-		return 0;
+		return kernel.weight(initialSimilarity, semanticSimilaritySource, semanticSimilarityTarget);
 	}
 
 	public double weightSimilarityAverage(double initialSimilarity, double semanticSimilaritySource,
 			double semanticSimilarityTarget) {
-		double weightedSimilarity = ((initialSimilarity / 2) * semanticSimilaritySource)
-				+ ((initialSimilarity / 2) * semanticSimilarityTarget);
-
-		return weightedSimilarity;
+		return SSMKernel.weightAverage(initialSimilarity, semanticSimilaritySource, semanticSimilarityTarget);
 	}
 
 	public double weightSimilarityTConorm(double initialSimilarity, double semanticSimilaritySource,
 			double semanticSimilarityTarget) {
-		double weightedSimilarity = tconorm(semanticSimilaritySource, semanticSimilarityTarget);
-
-		return weightedSimilarity * initialSimilarity;
+		return SSMKernel.weightTConorm(initialSimilarity, semanticSimilaritySource, semanticSimilarityTarget);
 	}
 
-	private double tconorm(double x, double y) {
-		return (x + y - x * y);
-	}
-
-	// Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping> {
-		private int source;
-		private int target;
-
-		MappingTask(int s, int t) {
-			source = s;
-			target = t;
-		}
-
+	// Scorer for mapping two classes
+	private class MappingScorer extends ChunkedScorer {
 		@Override
-		public Mapping call() {
-			return new Mapping(source, target, mapTwoTerms(source, target));
+		protected double score(int source, int target) {
+			return mapTwoTerms(source, target);
 		}
 	}
 
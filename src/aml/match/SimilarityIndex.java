@@ -0,0 +1,121 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Read-only snapshot of the similarities of an Alignment, in compressed       *
+* sparse rows: one row per source id, holding the sorted target ids of its    *
+* mappings and their similarities in parallel arrays. Lookups are a binary    *
+* search within the row, without boxing or allocation.                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Arrays;
+
+public class SimilarityIndex implements SSMKernel.SimilarityLookup
+{
+
+//Attributes
+
+	//The start of the row of each source id in the target and similarity
+	//arrays (the row of source i is [rowStart[i],rowStart[i+1]))
+	private int[] rowStart;
+	private int[] targets;
+	private double[] similarities;
+	//The maximum similarity in the index
+	private double maxSimilarity;
+
+//Constructors
+
+	/**
+	 * Builds the index of the given Alignment (later changes to the
+	 * Alignment are not reflected in the index)
+	 * @param a: the Alignment to index
+	 */
+	public SimilarityIndex(Alignment a)
+	{
+		int maxSource = 0;
+		for(Mapping m : a)
+			if(m.getSourceId() > maxSource)
+				maxSource = m.getSourceId();
+		//Count the mappings of each source
+		rowStart = new int[maxSource+2];
+		for(Mapping m : a)
+			rowStart[m.getSourceId()+1]++;
+		for(int i = 1; i < rowStart.length; i++)
+			rowStart[i] += rowStart[i-1];
+		//Fill the rows
+		targets = new int[a.size()];
+		similarities = new double[a.size()];
+		int[] next = Arrays.copyOf(rowStart, rowStart.length - 1);
+		for(Mapping m : a)
+		{
+			int k = next[m.getSourceId()]++;
+			targets[k] = m.getTargetId();
+			similarities[k] = m.getSimilarity();
+			if(m.getSimilarity() > maxSimilarity)
+				maxSimilarity = m.getSimilarity();
+		}
+		//Sort each row by target id
+		for(int i = 0; i < rowStart.length - 1; i++)
+			sortRow(rowStart[i], rowStart[i+1]);
+	}
+
+//Public Methods
+
+	/**
+	 * @return the maximum similarity in the index, or 0 if it is empty
+	 */
+	public double getMaxSimilarity()
+	{
+		return maxSimilarity;
+	}
+
+	@Override
+	public double getSimilarity(int sourceId, int targetId)
+	{
+		if(sourceId < 0 || sourceId >= rowStart.length - 1)
+			return 0.0;
+		int k = Arrays.binarySearch(targets, rowStart[sourceId], rowStart[sourceId+1], targetId);
+		if(k < 0)
+			return 0.0;
+		return similarities[k];
+	}
+
+	/**
+	 * @return the number of mappings in the index
+	 */
+	public int size()
+	{
+		return targets.length;
+	}
+
+//Private Methods
+
+	//Sorts a row by target id
+	private void sortRow(int from, int to)
+	{
+		if(to - from < 2)
+			return;
+		//Sort the targets together with their position in the row
+		long[] order = new long[to - from];
+		for(int i = from; i < to; i++)
+			order[i-from] = ((long)targets[i] << 32) | (i - from);
+		Arrays.sort(order);
+		double[] s = Arrays.copyOfRange(similarities, from, to);
+		for(int i = 0; i < order.length; i++)
+		{
+			targets[from+i] = (int)(order[i] >>> 32);
+			similarities[from+i] = s[(int)order[i]];
+		}
+	}
+}
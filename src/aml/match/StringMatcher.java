@@ -34,9 +34,10 @@ import uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
 import aml.AML;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Ontology;
 import aml.ontology.Lexicon;
-import aml.ontology.RelationshipMap;
+import aml.ontology.SiblingIndex;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
@@ -55,6 +56,8 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 											  "entries, using a String similarity measure";
 	private static final String NAME = "String Matcher";
 	private static final EntityType[] SUPPORT = {EntityType.CLASS,EntityType.INDIVIDUAL,EntityType.DATA,EntityType.OBJECT};
+	//The maximum number of siblings of a class to extend a mapping to its siblings
+	private static final int MAX_SIBLINGS = 200;
 	//Links to the AML class and to the source and target Lexicons
 	private AML aml;
 	private Ontology source;
@@ -221,7 +224,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	
 	private Alignment extendChildrenAndParents(Alignment a, double thresh)
 	{
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
 		for(int i = 0; i < a.size(); i++)
 		{
@@ -258,22 +261,27 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	
 	private Alignment extendSiblings(Alignment a, double thresh)
 	{		
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
+		SiblingIndex siblings = rels.getSiblingIndex();
+		SiblingIndex.Cursor sourceSiblings = siblings.cursor();
+		SiblingIndex.Cursor targetSiblings = siblings.cursor();
 		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
 			if(!aml.getURIMap().isClass(input.getSourceId()))
 				continue;
-			Set<Integer> sourceSiblings = rels.getAllSiblings(input.getSourceId());
-			Set<Integer> targetSiblings = rels.getAllSiblings(input.getTargetId());
-			if(sourceSiblings.size() > 200 || targetSiblings.size() > 200)
+			//Skip the classes with too many siblings (counting them only
+			//up to the limit, so wide parents are not iterated in full)
+			if(sourceSiblings.count(input.getSourceId(), false, MAX_SIBLINGS) > MAX_SIBLINGS ||
+					targetSiblings.count(input.getTargetId(), false, MAX_SIBLINGS) > MAX_SIBLINGS)
 				continue;
-			for(Integer s : sourceSiblings)
+			for(int s = sourceSiblings.next(); s != -1; s = sourceSiblings.next())
 			{
 				if(a.containsSource(s))
 					continue;
-				for(Integer t : targetSiblings)
+				targetSiblings.reset(input.getTargetId(), false);
+				for(int t = targetSiblings.next(); t != -1; t = targetSiblings.next())
 				{
 					if(!a.containsTarget(t))
 						toMap.add(s, t);
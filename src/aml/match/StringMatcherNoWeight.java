@@ -22,21 +22,16 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
 import aml.AML;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Ontology;
 import aml.ontology.Lexicon;
-import aml.ontology.RelationshipMap;
+import aml.ontology.SiblingIndex;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
@@ -55,6 +50,8 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 											  "entries, using a String similarity measure";
 	private static final String NAME = "String Matcher";
 	private static final EntityType[] SUPPORT = {EntityType.CLASS,EntityType.INDIVIDUAL,EntityType.DATA,EntityType.OBJECT};
+	//The maximum number of siblings of a class to extend a mapping to its siblings
+	private static final int MAX_SIBLINGS = 200;
 	//Links to the AML class and to the source and target Lexicons
 	private AML aml;
 	private Ontology source;
@@ -69,8 +66,6 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 	//Correction factor (to make string similarity values comparable to word similarity values
 	//and thus enable their combination and proper selection; 0.8 is optimized for the ISub measure)
 //	private final double CORRECTION = 0.80;
-	//The available CPU threads
-	private int threads;
 
 //Constructors
 	
@@ -80,7 +75,6 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 	 */
 	public StringMatcherNoWeight()
 	{
-		threads = Runtime.getRuntime().availableProcessors();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -221,7 +215,7 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 	
 	private Alignment extendChildrenAndParents(Alignment a, double thresh)
 	{
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
 		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
 		for(int i = 0; i < a.size(); i++)
 		{
@@ -258,22 +252,27 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 	
 	private Alignment extendSiblings(Alignment a, double thresh)
 	{		
-		RelationshipMap rels = aml.getRelationshipMap();
+		AbstractRelationshipMap rels = aml.getRelationshipMap();
+		SiblingIndex siblings = rels.getSiblingIndex();
+		SiblingIndex.Cursor sourceSiblings = siblings.cursor();
+		SiblingIndex.Cursor targetSiblings = siblings.cursor();
 		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
 			if(!aml.getURIMap().isClass(input.getSourceId()))
 				continue;
-			Set<Integer> sourceSiblings = rels.getAllSiblings(input.getSourceId());
-			Set<Integer> targetSiblings = rels.getAllSiblings(input.getTargetId());
-			if(sourceSiblings.size() > 200 || targetSiblings.size() > 200)
+			//Skip the classes with too many siblings (counting them only
+			//up to the limit, so wide parents are not iterated in full)
+			if(sourceSiblings.count(input.getSourceId(), false, MAX_SIBLINGS) > MAX_SIBLINGS ||
+					targetSiblings.count(input.getTargetId(), false, MAX_SIBLINGS) > MAX_SIBLINGS)
 				continue;
-			for(Integer s : sourceSiblings)
+			for(int s = sourceSiblings.next(); s != -1; s = sourceSiblings.next())
 			{
 				if(a.containsSource(s))
 					continue;
-				for(Integer t : targetSiblings)
+				targetSiblings.reset(input.getTargetId(), false);
+				for(int t = targetSiblings.next(); t != -1; t = targetSiblings.next())
 				{
 					if(!a.containsTarget(t))
 						toMap.add(s, t);
@@ -283,40 +282,10 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 		return mapInParallel(toMap,thresh);
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
+	//Maps a table of classes in parallel, using the shared scoring pool
 	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		return new MappingScorer().map(toMap,thresh);
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
@@ -404,22 +373,13 @@ public class StringMatcherNoWeight implements PrimaryMatcher, Rematcher, Seconda
 		return sim;
 	}
 	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
+	//Scorer for mapping two classes
+	private class MappingScorer extends ChunkedScorer
 	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
-	    {
-			source = s;
-	        target = t;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target));
-        }
+		@Override
+		protected double score(int source, int target)
+		{
+			return mapTwoEntities(source,target);
+		}
 	}
 }
\ No newline at end of file
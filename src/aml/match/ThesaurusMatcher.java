@@ -87,6 +87,8 @@ public class ThesaurusMatcher implements PrimaryMatcher
 		Lexicon target = new Lexicon(aml.getTarget().getLexicon());
 		extendLexicon(source,e,thresh);
 		extendLexicon(target,e,thresh);
+		source.freeze();
+		target.freeze();
 		Alignment a = match(source,target,e,thresh);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
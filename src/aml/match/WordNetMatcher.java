@@ -74,6 +74,8 @@ public class WordNetMatcher implements PrimaryMatcher, LexiconExtender
 			extendLexicon(aml.getSource().getLexicon(),e,0.0);
 			extendLexicon(aml.getTarget().getLexicon(),e,0.0);
 		}
+		aml.getSource().getLexicon().freeze();
+		aml.getTarget().getLexicon().freeze();
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 	}
@@ -107,6 +109,8 @@ public class WordNetMatcher implements PrimaryMatcher, LexiconExtender
 		Lexicon target = new Lexicon(aml.getTarget().getLexicon());
 		extendLexicon(source,e,thresh);
 		extendLexicon(target,e,thresh);
+		source.freeze();
+		target.freeze();
 		Alignment a = match(source,target,e,thresh);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
@@ -115,6 +115,8 @@ public class XRefMatcher extends MediatingMatcher
 				}
 			}
 		}
+		source.getLexicon().freeze();
+		target.getLexicon().freeze();
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 	}
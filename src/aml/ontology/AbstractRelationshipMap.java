@@ -0,0 +1,627 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* The read-only queries of a map of relationships, which are answered either  *
+* by the RelationshipMap of an ontology or by a MergedRelationshipMap view of *
+* the RelationshipMaps of several ontologies. The queries derived from others *
+* (e.g. siblings, subclasses and superclasses) are implemented here once.     *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.util.IntTable2Set;
+
+public abstract class AbstractRelationshipMap
+{
+
+//Public Methods
+
+	/**
+	 * @param class1: the first class to check for disjointness
+	 * @param class2: the second class to check for disjointness
+	 * @return whether one and two are disjoint considering transitivity
+	 */
+	public abstract boolean areDisjoint(int class1, int class2);
+	
+	/**
+	 * @param child: the index of the child class
+	 * @param parent: the index of the parent class
+	 * @return whether the RelationshipMap contains a relationship between child and parent
+	 */
+	public abstract boolean areRelatedClasses(int child, int parent);
+	
+	/**
+	 * Waits for the transitive closure running in the background, if any
+	 * @throws IllegalStateException if the background closure failed (or the
+	 * Error that made it fail), as the relations are only partly closed
+	 */
+	public abstract void awaitClosure();
+	
+	/**
+	 * Checks whether an individual belongs to a class
+	 * @param indivId: the index of the individual to check
+	 * @param classId: the index of the class to check
+	 * @return whether indivId is an instance of classId or
+	 * of one of its subclasses
+	 */
+	public abstract boolean belongsToClass(int indivId, int classId);
+	
+	/**
+	 * @return the number of disjoint clauses
+	 */
+	public abstract int disjointCount();
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of all siblings of the given class
+	 */
+	public Set<Integer> getAllSiblings(int classId)
+	{
+		return getSiblings(classId, false);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of ancestors of the given class
+	 */
+	public abstract Set<Integer> getAncestors(int classId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @return the list of ancestors at the given distance from the input class
+	 */
+	public abstract Set<Integer> getAncestors(int classId, int distance);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param prop: the relationship property between the class and its ancestors
+	 * @return the list of ancestors at the given distance from the input class
+	 */
+	public abstract Set<Integer> getAncestorsProperty(int classId, int prop);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @param prop: the relationship property between the class and its ancestors
+	 * @return the list of ancestors of the input class that are at the given
+	 * distance and with the given property
+	 */
+	public abstract Set<Integer> getAncestors(int classId, int distance, int prop);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @return the ancestors at the given distance from the input class, sorted
+	 * by id (the array may be shared by the map, so it must not be changed)
+	 */
+	public abstract int[] getAncestorArray(int classId, int distance);
+	
+	/**
+	 * @return the set of classes with ancestors in the map
+	 */
+	public abstract Set<Integer> getChildren();
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of direct children of the given class
+	 */
+	public Set<Integer> getChildren(int classId)
+	{
+		return getDescendants(classId,1);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of individuals that instantiate the given class
+	 */
+	public abstract Set<Integer> getClassIndividuals(int classId);
+	
+	/**
+	 * @param classes: the set the class to search in the map
+	 * @return the list of direct subclasses shared by the set of classes
+	 */
+	public Set<Integer> getCommonSubClasses(Set<Integer> classes)
+	{
+		if(classes == null || classes.size() == 0)
+			return null;
+		Iterator<Integer> it = classes.iterator();
+		Vector<Integer> subclasses = new Vector<Integer>(getSubClasses(it.next(),false));
+		while(it.hasNext())
+		{
+			HashSet<Integer> s = new HashSet<Integer>(getSubClasses(it.next(),false));
+			for(int i = 0; i < subclasses.size(); i++)
+			{
+				if(!s.contains(subclasses.get(i)))
+				{
+					subclasses.remove(i);
+					i--;
+				}
+			}
+		}
+		for(int i = 0; i < subclasses.size()-1; i++)
+		{
+			for(int j = i+1; j < subclasses.size(); j++)
+			{
+				if(isSubclass(subclasses.get(i),subclasses.get(j)))
+				{
+					subclasses.remove(i);
+					i--;
+					j--;
+				}
+				if(isSubclass(subclasses.get(j),subclasses.get(i)))
+				{
+					subclasses.remove(j);
+					j--;
+				}
+			}
+		}
+		return new HashSet<Integer>(subclasses);
+	}
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of data types in the range of the input property
+	 */
+	public abstract Set<String> getDataRanges(int propId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of descendants of the input class
+	 */
+	public abstract Set<Integer> getDescendants(int classId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @return the list of descendants at the given distance from the input class
+	 */
+	public abstract Set<Integer> getDescendants(int classId, int distance);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param prop: the relationship property between the class and its ancestors
+	 * @return the list of descendants at the given distance from the input class
+	 */
+	public abstract Set<Integer> getDescendantsProperty(int classId, int prop);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @param prop: the relationship property between the class and its ancestors
+	 * @return the list of descendants of the input class at the given distance
+	 * and with the given property
+	 */
+	public abstract Set<Integer> getDescendants(int classId, int distance, int prop);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its descendants
+	 * @return the descendants at the given distance from the input class, sorted
+	 * by id (the array may be shared by the map, so it must not be changed)
+	 */
+	public abstract int[] getDescendantArray(int classId, int distance);
+	
+	/**
+	 * @return the set of classes that have disjoint clauses
+	 */
+	public abstract Set<Integer> getDisjoint();
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of classes disjoint with the given class
+	 */
+	public abstract Set<Integer> getDisjoint(int classId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of classes disjoint with the given class
+	 * or any of its 'is_a' ancestors
+	 */
+	public Set<Integer> getDisjointTransitive(int classId)
+	{
+		//Get the disjoint clauses for the class (copied, so
+		//that the disjointMap is not changed)
+		Set<Integer> disj = new HashSet<Integer>(getDisjoint(classId));
+		//Then get all superclasses of the class
+		Set<Integer> ancestors = getSuperClasses(classId,false);
+		//For each superclass
+		for(Integer i : ancestors)
+			//Add its disjoint clauses to the list
+			disj.addAll(getDisjoint(i));
+		return disj;
+	}
+	
+	/**
+	 * @param child: the index of the child class
+	 * @param parent: the index of the parent class
+	 * @return the minimal distance between the child and parent,
+	 * or 0 if child==parent, or -1 if they aren't related
+	 */
+	public abstract int getDistance(int child, int parent);
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of class indexes in the domain of the input property
+	 */
+	public abstract Set<Integer> getDomains(int propId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of equivalences of the given class
+	 */
+	public Set<Integer> getEquivalences(int classId)
+	{
+		return getDescendants(classId, 0);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of classes equivalent to the given class
+	 */
+	public Set<Integer> getEquivalentClasses(int classId)
+	{
+		return getDescendants(classId,0,-1);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the (read-only) set of high level ancestors of the given class
+	 */
+	public abstract Set<Integer> getHighLevelAncestors(int classId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the sorted array of high level ancestors of the given class
+	 * (shared, so it must not be modified)
+	 */
+	public abstract int[] getHighLevelAncestorArray(int classId);
+	
+	/**
+	 * @return the set of high level classes in the ontology
+	 */
+	public abstract Set<Integer> getHighLevelClasses();
+	
+	/**
+	 * @param indivId: the id of the individual to search in the map
+	 * @return the list of individuals to which the given individual is actively related
+	 */
+	public abstract Set<Integer> getIndividualActiveRelations(int indivId);
+	
+	/**
+	 * @param indivId: the id of the individual to search in the map
+	 * @return the list of classes instanced by the given individual
+	 */
+	public abstract Set<Integer> getIndividualClasses(int indivId);
+	
+	/**
+	 * @param indivId: the id of the individual to search in the map
+	 * @return the list of individuals that are actively related with of the given individual
+	 */
+	public abstract Set<Integer> getIndividualPassiveRelations(int indivId);
+	
+	/**
+	 * @param sourceInd: the id of the source individual in the relation
+	 * @param targetInd: the id of the target individual in the relation
+	 * @return the list of object properties actively relating sourceInd to targetInd
+	 */
+	public abstract Set<Integer> getIndividualProperties(int sourceInd, int targetInd);
+	
+	/**
+	 * @return the list of individuals with active relations
+	 */
+	public abstract Set<Integer> getIndividualsWithActiveRelations();
+	
+	/**
+	 * @return the list of individuals with active relations
+	 */
+	public abstract Set<Integer> getIndividualsWithPassiveRelations();
+	
+	/**
+	 * @param indivId: the id of the individual to search in the map
+	 * @return the list of classes instanced by the given individual
+	 */
+	public abstract Set<Integer> getInstancedClasses();
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of inverse properties of the input property
+	 */
+	public abstract Set<Integer> getInverseProperties(int propId);
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of classes in the range of the input property
+	 */
+	public abstract Set<Integer> getObjectRanges(int propId);
+	
+	/**
+	 * @return the set of classes with ancestors in the map
+	 */
+	public abstract Set<Integer> getParents();
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of direct parents of the given class
+	 */
+	public Set<Integer> getParents(int classId)
+	{
+		return getAncestors(classId,1);
+	}
+	
+	/**
+	 * @param indivId: the id of the individual to search in the map
+	 * @param prop: the property relating the individuals
+	 * @return the list of 'parent' relations of the given individual
+	 */
+	public abstract Set<Integer> getParentIndividuals(int indivId, int prop);
+	
+	/**
+	 * @param child: the id of the child class to search in the map
+	 * @param parent: the id of the parent class to search in the map
+	 * @return the 'best' relationship between the two classes
+	 */
+	public Relationship getRelationship(int child, int parent)
+	{
+		if(!areRelatedClasses(child, parent))
+			return null;
+		Vector<Relationship> rels = getRelationships(child, parent);
+		Relationship rel = rels.get(0);
+		for(Relationship r : rels)
+			if(r.compareTo(rel) > 0)
+				rel = r;
+		return rel;
+	}
+	
+	/**
+	 * @param child: the id of the child class to search in the map
+	 * @param parent: the id of the parent class to search in the map
+	 * @return the relationships between the two classes
+	 */
+	public abstract Vector<Relationship> getRelationships(int child, int parent);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param prop: the relationship property between the class and its ancestors
+	 * @return the list of strict siblings of the given class (through the subclass relation)
+	 */
+	public Set<Integer> getSiblings(int classId)
+	{
+		return getSiblings(classId, true);
+	}
+	
+	/**
+	 * @return the SiblingIndex of the map, building it if needed
+	 */
+	public abstract SiblingIndex getSiblingIndex();
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the list of siblings of the given class for all
+	 * subclass relationships
+	 */
+	public Set<Integer> getSiblingsProperty(int classId, int prop)
+	{
+		Set<Integer> parents = getAncestors(classId,1,prop);
+		HashSet<Integer> siblings = new HashSet<Integer>();
+		for(Integer i : parents)
+		{
+			Set<Integer> children = getDescendants(i,1,prop);
+			for(Integer j : children)
+				if(j != classId)
+					siblings.add(j);
+		}
+		return siblings;
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all subclasses or just the direct ones
+	 * @return the list of direct or indirect subclasses of the input class
+	 */
+	public Set<Integer> getSubClasses(int classId, boolean direct)
+	{
+		if(direct)
+			return getDescendants(classId,1,-1);
+		else
+			return getDescendantsProperty(classId,-1);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the direct subclasses of the input class, sorted by id
+	 * (the array may be shared by the map, so it must not be changed)
+	 */
+	public abstract int[] getSubClassArray(int classId);
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of sub-properties of the input property
+	 */
+	public abstract Set<Integer> getSubProperties(int propId);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all superclasses or just the direct ones
+	 * @return the list of direct or indirect superclasses of the input class
+	 */
+	public Set<Integer> getSuperClasses(int classId, boolean direct)
+	{
+		if(direct)
+			return getAncestors(classId,1,-1);
+		else
+			return getAncestorsProperty(classId,-1);
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @return the direct superclasses of the input class, sorted by id
+	 * (the array may be shared by the map, so it must not be changed)
+	 */
+	public abstract int[] getSuperClassArray(int classId);
+	
+	/**
+	 * @param propId: the id of the property to search in the map
+	 * @return the list of super-properties of the input property
+	 */
+	public abstract Set<Integer> getSuperProperties(int propId);
+	
+	/**
+	 * @return the table of transitive properties
+	 */
+	public abstract IntTable2Set getTransitiveProperties();
+	
+	/**
+	 * @param class: the index of the class to search in the map
+	 * @return whether there is a disjoint clause associated with the class
+	 */
+	public abstract boolean hasDisjoint(int classId);
+	
+	/**
+	 * @param classId: the index of the class to search in the map
+	 * @return whether there is a disjoint clause associated with the class
+	 * or any of its 'is_a' ancestors
+	 */
+	public abstract boolean hasDisjointTransitive(int classId);
+	
+	/**
+	 * @param one: the first class to check for disjointness
+	 * @param two: the second class to check for disjointness
+	 * @return whether there is a disjoint clause between one and two
+	 */
+	public abstract boolean hasDisjointClause(int one, int two);
+	
+	/**
+	 * @param child: the id of the child class to search in the map
+	 * @param parent: the id of the parent class to search in the map
+	 * @param property: the id of the property between child and parent
+	 * @return whether there is a relationship between child and parent
+	 *  with the given property
+	 */
+	public abstract boolean hasProperty(int child, int parent, int property);
+	
+	/**
+	 * @return the number of instantiations in the map
+	 */
+	public abstract int individualRelationshipCount();
+	
+	/**
+	 * @return the number of instantiations in the map
+	 */
+	public abstract int instanceCount();
+	
+	/**
+	 * @return whether the hierarchical relations are transitively closed
+	 * (false while the transitive closure is running in the background)
+	 */
+	public abstract boolean isClosed();
+	
+	/**
+	 * @param prop: the index of the property to check
+	 * @return whether the property is functional
+	 */
+	public abstract boolean isFunctional(int prop);
+	
+	/**
+	 * @param child: the index of the child class
+	 * @param parent: the index of the parent class
+	 * @return whether the RelationshipMap contains an 'is_a' relationship between child and parent
+	 */	
+	public abstract boolean isSubclass(int child, int parent);
+	
+	/**
+	 * @param prop: the index of the property to check
+	 * @return whether the property is symmetric
+	 */
+	public abstract boolean isSymmetric(int prop);
+	
+	/**
+	 * @return the number of class relationships in the map
+	 */
+	public abstract int relationshipCount();
+	
+	/**
+	 * Sets the number of threads of the transitive closure (with a single
+	 * thread the closure is fully sequential)
+	 * @param threads: the number of threads to use
+	 */
+	public abstract void setClosureThreads(int threads);
+	
+	/**
+	 * Checks whether two individuals share a direct class assignment
+	 * @param ind1Id: the first individual to check
+	 * @param ind2Id: the second individual to check
+	 * @return whether ind1Id and ind2Id have at least one class in common
+	 * in their direct class assignments
+	 */
+	public abstract boolean shareClass(int ind1Id, int ind2Id);
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all subclasses or just the direct ones
+	 * @return the number of direct or indirect subclasses of the input class
+	 */
+	public int subClassCount(int classId, boolean direct)
+	{
+		return getSubClasses(classId,direct).size();
+	}
+	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param direct: whether to return all superclasses or just the direct ones
+	 * @return the number of direct or indirect superclasses of the input class
+	 */
+	public int superClassCount(int classId, boolean direct)
+	{
+		return getSuperClasses(classId,direct).size();
+	}
+	
+	/**
+	 * Computes the transitive closure of the hierarchical relations
+	 * by adding inherited relationships (and their distances)
+	 */
+	public abstract void transitiveClosure();
+	
+	/**
+	 * Starts the transitive closure of the hierarchical relations in the
+	 * background and returns immediately; queries about class relationships
+	 * wait for the closure to finish
+	 */
+	public abstract void transitiveClosureInBackground();
+	
+	/**
+	 * @param child: the child class in the relationship
+	 * @param parent: the parent class in the relationship
+	 * @return whether adding the relationship between child and parent
+	 * to the RelationshipMap would violate a disjoint clause
+	 */
+	public abstract boolean violatesDisjoint(int child, int parent);
+
+//Private Methods
+
+	//Returns the siblings of a class, through any property or 'is_a' only
+	private HashSet<Integer> getSiblings(int classId, boolean isA)
+	{
+		SiblingIndex.Cursor c = getSiblingIndex().cursor();
+		c.reset(classId, isA);
+		HashSet<Integer> siblings = new HashSet<Integer>();
+		for(int s = c.next(); s != -1; s = c.next())
+			siblings.add(s);
+		return siblings;
+	}
+}
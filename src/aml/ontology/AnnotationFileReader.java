@@ -42,7 +42,8 @@ public class AnnotationFileReader
 	{
 		AML aml = AML.getInstance();
 		URIMap uris = aml.getURIMap();
-		RelationshipMap rels = aml.getRelationshipMap();
+		//The map of the ontology itself, as the merged map is read-only
+		RelationshipMap rels = o.getRelationshipMap();
 		
 		try
 		{
@@ -98,7 +99,8 @@ public class AnnotationFileReader
 	{
 		AML aml = AML.getInstance();
 		URIMap uris = aml.getURIMap();
-		RelationshipMap rels = aml.getRelationshipMap();
+		//The map of the ontology itself, as the merged map is read-only
+		RelationshipMap rels = o.getRelationshipMap();
 		
 		try
 		{
@@ -0,0 +1,693 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Frozen, compressed copy of the class relationships of a RelationshipMap.    *
+* For each direction (ancestors and descendants) the related classes of each  *
+* class are stored as a sorted row of an int array (compressed sparse rows),  *
+* and the Relationships of each pair as parallel short arrays of distance and *
+* property code (the index of the property in a dictionary, with the          *
+* restriction in the lowest bit), in their order in the RelationshipMap.      *
+* The related classes of each row are also kept grouped by distance in a     *
+* single array, with per-row offsets of each distance, so that those at a     *
+* given distance are a slice of that array.                                   *
+* The arrays can be written to a stream and read back from a buffer (e.g., a  *
+* memory-mapped file), with the class and property indexes remapped if they   *
+* changed in the meantime.                                                    *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.util.IntArraySet;
+import aml.util.Table3List;
+
+public class ClassHierarchy
+{
+
+//Attributes
+
+	//The empty array of related classes
+	private static final int[] NO_CLASSES = new int[0];
+	//The maximum number of distinct properties that fit in a property code
+	private static final int MAX_PROPERTIES = Short.MAX_VALUE >> 1;
+	//The properties of the relationships (the property of a code c is properties[c >> 1])
+	private int[] properties;
+	//The index of each property in the properties array
+	private HashMap<Integer,Integer> propertyIndex;
+	//The relationships in each direction
+	private Index ancestors;
+	private Index descendants;
+
+//Constructors
+
+	private ClassHierarchy(HashMap<Integer,Integer> propertyIndex)
+	{
+		this.propertyIndex = propertyIndex;
+		properties = new int[propertyIndex.size()];
+		for(Integer p : propertyIndex.keySet())
+			properties[propertyIndex.get(p)] = p;
+	}
+
+//Public Methods
+
+	/**
+	 * Builds the ClassHierarchy of the given tables of class relationships
+	 * @param ancestorClasses: the table of class -> ancestor -> relationship
+	 * @param descendantClasses: the table of class -> descendant -> relationship
+	 * @return the ClassHierarchy, or null if the relationships can't be encoded
+	 * (i.e., if there are negative class indexes, distances that don't fit in
+	 * a short, or too many properties)
+	 */
+	public static ClassHierarchy build(Table3List<Integer,Integer,Relationship> ancestorClasses,
+			Table3List<Integer,Integer,Relationship> descendantClasses)
+	{
+		HashMap<Integer,Integer> propertyIndex = new HashMap<Integer,Integer>();
+		for(Integer c : ancestorClasses.keySet())
+		{
+			if(c < 0)
+				return null;
+			for(Integer a : ancestorClasses.keySet(c))
+			{
+				if(a < 0)
+					return null;
+				for(Relationship r : ancestorClasses.get(c,a))
+				{
+					if(r.getDistance() < 0 || r.getDistance() > Short.MAX_VALUE)
+						return null;
+					if(!propertyIndex.containsKey(r.getProperty()))
+					{
+						if(propertyIndex.size() == MAX_PROPERTIES)
+							return null;
+						propertyIndex.put(r.getProperty(), propertyIndex.size());
+					}
+				}
+			}
+		}
+		ClassHierarchy h = new ClassHierarchy(propertyIndex);
+		h.ancestors = h.new Index(ancestorClasses);
+		h.descendants = h.new Index(descendantClasses);
+		return h;
+	}
+
+	/**
+	 * @return the relationships between classes and their ancestors
+	 */
+	public Index ancestors()
+	{
+		return ancestors;
+	}
+
+	/**
+	 * @return the relationships between classes and their descendants
+	 */
+	public Index descendants()
+	{
+		return descendants;
+	}
+
+	/**
+	 * Fills the given tables with the relationships in the ClassHierarchy,
+	 * in the order they had in the tables the ClassHierarchy was built from
+	 * @param ancestorClasses: the table of class -> ancestor -> relationship to fill
+	 * @param descendantClasses: the table of class -> descendant -> relationship to fill
+	 */
+	public void fill(Table3List<Integer,Integer,Relationship> ancestorClasses,
+			Table3List<Integer,Integer,Relationship> descendantClasses)
+	{
+		ancestors.fill(ancestorClasses);
+		descendants.fill(descendantClasses);
+	}
+
+	/**
+	 * @return the indexes of the classes and properties in the ClassHierarchy
+	 */
+	public Set<Integer> indexes()
+	{
+		HashSet<Integer> indexes = new HashSet<Integer>();
+		for(int c : ancestors.classes)
+			indexes.add(c);
+		for(int c : descendants.classes)
+			indexes.add(c);
+		for(int p : properties)
+			if(p != -1)
+				indexes.add(p);
+		return indexes;
+	}
+
+	/**
+	 * Reads a ClassHierarchy written by write() from the given buffer
+	 * @param in: the buffer to read, from its current position
+	 * @return the ClassHierarchy
+	 */
+	public static ClassHierarchy read(ByteBuffer in)
+	{
+		int[] properties = readInts(in);
+		HashMap<Integer,Integer> propertyIndex = new HashMap<Integer,Integer>();
+		for(int i = 0; i < properties.length; i++)
+			propertyIndex.put(properties[i], i);
+		ClassHierarchy h = new ClassHierarchy(propertyIndex);
+		h.ancestors = h.new Index(in);
+		h.descendants = h.new Index(in);
+		return h;
+	}
+
+	/**
+	 * @return the number of class relationships in the ClassHierarchy
+	 */
+	public int relationshipCount()
+	{
+		return ancestors.distance.length;
+	}
+
+	/**
+	 * @param map: the new index of each class and property index (-1 for
+	 * indexes that no longer exist)
+	 * @return a copy of the ClassHierarchy with the class and property
+	 * indexes replaced by their new indexes, or null if any of them is
+	 * missing from the map
+	 */
+	public ClassHierarchy remap(int[] map)
+	{
+		for(int i : indexes())
+			if(i >= map.length || map[i] < 0)
+				return null;
+		Table3List<Integer,Integer,Relationship> ancestorClasses = new Table3List<Integer,Integer,Relationship>();
+		Table3List<Integer,Integer,Relationship> descendantClasses = new Table3List<Integer,Integer,Relationship>();
+		ancestors.fill(ancestorClasses, map);
+		descendants.fill(descendantClasses, map);
+		return build(ancestorClasses, descendantClasses);
+	}
+
+	/**
+	 * Writes the ClassHierarchy to the given stream, so that it can be read
+	 * back with read() (the groups by distance are not written, as they are
+	 * rebuilt on reading)
+	 * @param out: the stream to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException
+	{
+		writeInts(out, properties);
+		ancestors.write(out);
+		descendants.write(out);
+	}
+
+//Private Methods
+
+	//Returns the code of the given property with the given restriction
+	//(-1 if the property is not in the ClassHierarchy)
+	private int code(int prop, boolean rest)
+	{
+		Integer i = propertyIndex.get(prop);
+		if(i == null)
+			return -1;
+		return (i << 1) | (rest ? 1 : 0);
+	}
+
+	private int property(short code)
+	{
+		return properties[code >> 1];
+	}
+
+	private Relationship relationship(short distance, short code)
+	{
+		return new Relationship(distance, property(code), (code & 1) == 1);
+	}
+
+	/**
+	 * The relationships between classes in one direction, as compressed
+	 * sparse rows: the related classes of the class in row i are
+	 * related[rowStart[i]..rowStart[i+1]), and the relationships of the
+	 * pair in position k of the related array are in positions
+	 * relStart[k]..relStart[k+1]) of the distance and code arrays
+	 */
+	public class Index
+	{
+		//The classes with rows, sorted by index
+		private int[] classes;
+		//The row of each class index, plus one (0 for classes without rows)
+		private int[] row;
+		private int[] rowStart;
+		private int[] related;
+		private int[] relStart;
+		private short[] distance;
+		private short[] code;
+		//The related classes of each row grouped by distance: the offsets of
+		//row i are groupStart[groupRow[i]..groupRow[i+1]), with the group of
+		//distance d in grouped[groupStart[g+2d]..groupStart[g+2d+2]) (for
+		//g = groupRow[i]), split at groupStart[g+2d+1] between the classes
+		//with an 'is_a' relationship at that distance and the others, each
+		//part sorted by index
+		private int[] groupRow;
+		private int[] groupStart;
+		private int[] grouped;
+
+		private Index(Table3List<Integer,Integer,Relationship> table)
+		{
+			classes = toSortedArray(table.keySet());
+			row = new int[classes.length == 0 ? 0 : classes[classes.length-1] + 1];
+			rowStart = new int[classes.length + 1];
+			int pairs = 0;
+			int rels = 0;
+			for(int i = 0; i < classes.length; i++)
+			{
+				row[classes[i]] = i + 1;
+				for(Integer j : table.keySet(classes[i]))
+					rels += table.get(classes[i],j).size();
+				pairs += table.keySet(classes[i]).size();
+				rowStart[i+1] = pairs;
+			}
+			related = new int[pairs];
+			relStart = new int[pairs + 1];
+			distance = new short[rels];
+			code = new short[rels];
+			int k = 0;
+			int l = 0;
+			for(int i = 0; i < classes.length; i++)
+			{
+				int[] rowClasses = toSortedArray(table.keySet(classes[i]));
+				for(int j : rowClasses)
+				{
+					related[k++] = j;
+					for(Relationship r : table.get(classes[i],j))
+					{
+						distance[l] = (short)r.getDistance();
+						code[l] = (short)code(r.getProperty(), r.getRestriction());
+						l++;
+					}
+					relStart[k] = l;
+				}
+			}
+			group();
+		}
+
+		private Index(ByteBuffer in)
+		{
+			classes = readInts(in);
+			rowStart = readInts(in);
+			related = readInts(in);
+			relStart = readInts(in);
+			distance = readShorts(in);
+			code = readShorts(in);
+			row = new int[classes.length == 0 ? 0 : classes[classes.length-1] + 1];
+			for(int i = 0; i < classes.length; i++)
+				row[classes[i]] = i + 1;
+			group();
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param dist: the distance between the classes
+		 * @param isA: whether to consider only 'is_a' relationships
+		 * @return the classes related to the given class at the given distance,
+		 * sorted by index
+		 */
+		public int[] atDistance(int classId, int dist, boolean isA)
+		{
+			if(!contains(classId) || dist < 0)
+				return NO_CLASSES;
+			int i = row[classId] - 1;
+			int g = groupRow[i] + 2 * dist;
+			if(g + 2 >= groupRow[i+1])
+				return NO_CLASSES;
+			int from = groupStart[g];
+			int mid = groupStart[g+1];
+			int to = groupStart[g+2];
+			if(isA || mid == to)
+				return from == mid ? NO_CLASSES : Arrays.copyOfRange(grouped, from, mid);
+			if(from == mid)
+				return Arrays.copyOfRange(grouped, mid, to);
+			//Merge the two sorted parts of the group
+			int[] merged = new int[to - from];
+			int a = from;
+			int b = mid;
+			for(int k = 0; k < merged.length; k++)
+			{
+				if(b == to || (a < mid && grouped[a] < grouped[b]))
+					merged[k] = grouped[a++];
+				else
+					merged[k] = grouped[b++];
+			}
+			return merged;
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @return whether the class has related classes in the Index
+		 */
+		public boolean contains(int classId)
+		{
+			return classId >= 0 && classId < row.length && row[classId] > 0;
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param relatedId: the index of the related class to search in the Index
+		 * @return whether the classes are related in the Index
+		 */
+		public boolean contains(int classId, int relatedId)
+		{
+			return find(classId, relatedId) > -1;
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param relatedId: the index of the related class to search in the Index
+		 * @return the relationships between the classes, in their original
+		 * order, or null if the classes are not related
+		 */
+		public Vector<Relationship> get(int classId, int relatedId)
+		{
+			int k = find(classId, relatedId);
+			if(k == -1)
+				return null;
+			Vector<Relationship> rels = new Vector<Relationship>(relStart[k+1] - relStart[k]);
+			for(int l = relStart[k]; l < relStart[k+1]; l++)
+				rels.add(relationship(distance[l], code[l]));
+			return rels;
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param relatedId: the index of the related class to search in the Index
+		 * @return the minimal distance between the classes, or -1 if they
+		 * are not related
+		 */
+		public int getDistance(int classId, int relatedId)
+		{
+			int k = find(classId, relatedId);
+			if(k == -1)
+				return -1;
+			int d = distance[relStart[k]];
+			for(int l = relStart[k] + 1; l < relStart[k+1]; l++)
+				if(distance[l] < d)
+					d = distance[l];
+			return d;
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param relatedId: the index of the related class to search in the Index
+		 * @param prop: the property to search in the Index
+		 * @return whether the classes are related through the given property
+		 */
+		public boolean hasProperty(int classId, int relatedId, int prop)
+		{
+			int k = find(classId, relatedId);
+			if(k == -1 || !propertyIndex.containsKey(prop))
+				return false;
+			for(int l = relStart[k]; l < relStart[k+1]; l++)
+				if(property(code[l]) == prop)
+					return true;
+			return false;
+		}
+
+		/**
+		 * @return the classes with related classes in the Index
+		 */
+		public Set<Integer> keySet()
+		{
+			return new IntArraySet(classes);
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @return the classes related to the given class
+		 */
+		public Set<Integer> keySet(int classId)
+		{
+			if(!contains(classId))
+				return IntArraySet.EMPTY;
+			int i = row[classId] - 1;
+			return new IntArraySet(related, rowStart[i], rowStart[i+1]);
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param dist: the distance between the classes (or -1 for any distance)
+		 * @return the classes related to the given class at the given distance
+		 */
+		public Set<Integer> select(int classId, int dist)
+		{
+			return select(classId, dist, false, 0);
+		}
+
+		/**
+		 * @param classId: the index of the class to search in the Index
+		 * @param dist: the distance between the classes (or -1 for any distance)
+		 * @param prop: the property of the relationships between the classes
+		 * @return the classes related to the given class at the given distance
+		 * and with the given property
+		 */
+		public Set<Integer> select(int classId, int dist, int prop)
+		{
+			return select(classId, dist, true, prop);
+		}
+
+		//Returns a new set with the classes related to the given class
+		//that have a relationship matching the given distance and property
+		private Set<Integer> select(int classId, int dist, boolean byProperty, int prop)
+		{
+			HashSet<Integer> selected = new HashSet<Integer>();
+			if(!contains(classId) || (byProperty && !propertyIndex.containsKey(prop)))
+				return selected;
+			int i = row[classId] - 1;
+			for(int k = rowStart[i]; k < rowStart[i+1]; k++)
+			{
+				for(int l = relStart[k]; l < relStart[k+1]; l++)
+				{
+					if((dist == -1 || distance[l] == dist) &&
+							(!byProperty || property(code[l]) == prop))
+					{
+						selected.add(related[k]);
+						break;
+					}
+				}
+			}
+			return selected;
+		}
+
+		//Adds the relationships of the Index to the given table
+		private void fill(Table3List<Integer,Integer,Relationship> table)
+		{
+			for(int i = 0; i < classes.length; i++)
+				for(int k = rowStart[i]; k < rowStart[i+1]; k++)
+					for(int l = relStart[k]; l < relStart[k+1]; l++)
+						table.add(classes[i], related[k], relationship(distance[l], code[l]));
+		}
+
+		//Adds the relationships of the Index to the given table, with the
+		//class and property indexes replaced by their new indexes
+		private void fill(Table3List<Integer,Integer,Relationship> table, int[] map)
+		{
+			for(int i = 0; i < classes.length; i++)
+			{
+				for(int k = rowStart[i]; k < rowStart[i+1]; k++)
+				{
+					for(int l = relStart[k]; l < relStart[k+1]; l++)
+					{
+						int prop = property(code[l]);
+						if(prop != -1)
+							prop = map[prop];
+						table.add(map[classes[i]], map[related[k]],
+								new Relationship(distance[l], prop, (code[l] & 1) == 1));
+					}
+				}
+			}
+		}
+
+		//Groups the related classes of all rows by distance
+		private void group()
+		{
+			//Size the offsets of each row by its maximum distance
+			groupRow = new int[classes.length + 1];
+			int maxDistance = -1;
+			for(int i = 0; i < classes.length; i++)
+			{
+				int rowMax = -1;
+				for(int l = relStart[rowStart[i]]; l < relStart[rowStart[i+1]]; l++)
+					if(distance[l] > rowMax)
+						rowMax = distance[l];
+				groupRow[i+1] = groupRow[i] + 2 * (rowMax + 1) + 1;
+				maxDistance = Math.max(maxDistance, rowMax);
+			}
+			groupStart = new int[groupRow[classes.length]];
+			int[] isACount = new int[maxDistance + 1];
+			int[] otherCount = new int[maxDistance + 1];
+			int[] last = new int[maxDistance + 1];
+			boolean[] isA = new boolean[maxDistance + 1];
+			int[] touched = new int[maxDistance + 1];
+			Arrays.fill(last, -1);
+			//Count the classes of each part of each group (a class with more
+			//than one relationship at the same distance is counted once)
+			int entries = 0;
+			for(int i = 0; i < classes.length; i++)
+			{
+				int g = groupRow[i];
+				int groups = (groupRow[i+1] - g - 1) / 2;
+				Arrays.fill(isACount, 0, groups, 0);
+				Arrays.fill(otherCount, 0, groups, 0);
+				for(int k = rowStart[i]; k < rowStart[i+1]; k++)
+				{
+					int t = distancesOf(k, last, isA, touched);
+					for(int j = 0; j < t; j++)
+					{
+						if(isA[touched[j]])
+							isACount[touched[j]]++;
+						else
+							otherCount[touched[j]]++;
+					}
+				}
+				for(int d = 0; d < groups; d++)
+				{
+					groupStart[g + 2*d] = entries;
+					groupStart[g + 2*d + 1] = entries + isACount[d];
+					entries += isACount[d] + otherCount[d];
+				}
+				groupStart[g + 2*groups] = entries;
+			}
+			//Then fill them in the (sorted) order of the row
+			grouped = new int[entries];
+			Arrays.fill(last, -1);
+			for(int i = 0; i < classes.length; i++)
+			{
+				int g = groupRow[i];
+				int groups = (groupRow[i+1] - g - 1) / 2;
+				for(int d = 0; d < groups; d++)
+				{
+					isACount[d] = groupStart[g + 2*d];
+					otherCount[d] = groupStart[g + 2*d + 1];
+				}
+				for(int k = rowStart[i]; k < rowStart[i+1]; k++)
+				{
+					int t = distancesOf(k, last, isA, touched);
+					for(int j = 0; j < t; j++)
+					{
+						if(isA[touched[j]])
+							grouped[isACount[touched[j]]++] = related[k];
+						else
+							grouped[otherCount[touched[j]]++] = related[k];
+					}
+				}
+			}
+		}
+
+		//Lists the distinct distances of the relationships of the pair in
+		//position k in touched (returning how many there are), and marks
+		//those at which the pair has an 'is_a' relationship in isA (last
+		//holds the last pair that listed each distance)
+		private int distancesOf(int k, int[] last, boolean[] isA, int[] touched)
+		{
+			int t = 0;
+			for(int l = relStart[k]; l < relStart[k+1]; l++)
+			{
+				int d = distance[l];
+				if(last[d] != k)
+				{
+					last[d] = k;
+					isA[d] = false;
+					touched[t++] = d;
+				}
+				if(property(code[l]) == -1)
+					isA[d] = true;
+			}
+			return t;
+		}
+
+		private void write(DataOutputStream out) throws IOException
+		{
+			writeInts(out, classes);
+			writeInts(out, rowStart);
+			writeInts(out, related);
+			writeInts(out, relStart);
+			writeShorts(out, distance);
+			writeShorts(out, code);
+		}
+
+		//Returns the position of the related class in the related array,
+		//or -1 if the classes are not related
+		private int find(int classId, int relatedId)
+		{
+			if(!contains(classId))
+				return -1;
+			int i = row[classId] - 1;
+			int k = Arrays.binarySearch(related, rowStart[i], rowStart[i+1], relatedId);
+			if(k < 0)
+				return -1;
+			return k;
+		}
+	}
+
+	//Reads an array written by writeInts()
+	private static int[] readInts(ByteBuffer in)
+	{
+		int[] array = new int[readLength(in, 4)];
+		in.asIntBuffer().get(array);
+		in.position(in.position() + 4 * array.length);
+		return array;
+	}
+
+	//Reads the length of an array, checking that the buffer holds that many
+	//elements of the given size before the array is allocated
+	private static int readLength(ByteBuffer in, int size)
+	{
+		int length = in.getInt();
+		if(length < 0 || length > in.remaining() / size)
+			throw new BufferUnderflowException();
+		return length;
+	}
+
+	//Reads an array written by writeShorts()
+	private static short[] readShorts(ByteBuffer in)
+	{
+		short[] array = new short[readLength(in, 2)];
+		in.asShortBuffer().get(array);
+		in.position(in.position() + 2 * array.length);
+		return array;
+	}
+
+	private static int[] toSortedArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(Integer j : set)
+			array[i++] = j;
+		Arrays.sort(array);
+		return array;
+	}
+
+	//Writes an array preceded by its length
+	private static void writeInts(DataOutputStream out, int[] array) throws IOException
+	{
+		out.writeInt(array.length);
+		for(int i : array)
+			out.writeInt(i);
+	}
+
+	//Writes an array preceded by its length
+	private static void writeShorts(DataOutputStream out, short[] array) throws IOException
+	{
+		out.writeInt(array.length);
+		for(short i : array)
+			out.writeShort(i);
+	}
+}
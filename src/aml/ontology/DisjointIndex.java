@@ -0,0 +1,174 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Reachability index of the disjoint clauses of a closed RelationshipMap.     *
+* The classes with disjoint clauses are numbered, and each class gets two     *
+* bitsets over those numbers: its lineage (the class and its 'is_a'           *
+* ancestors) and its transitive disjoints (the classes disjoint with the      *
+* class or any of its 'is_a' ancestors). Two classes are then disjoint if the *
+* transitive disjoints of one intersect the lineage of the other.             *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class DisjointIndex
+{
+
+//Attributes
+
+	//The number of each class with disjoint clauses (-1 for other classes)
+	private int[] bit;
+	//The number of longs in each bitset
+	private int words;
+	//The lineage and the transitive disjoints of each class (null if empty)
+	private long[][] lineage;
+	private long[][] disjoint;
+
+//Constructors
+
+	/**
+	 * Builds the DisjointIndex of the given RelationshipMap (later changes
+	 * to the RelationshipMap are not reflected in the index)
+	 * @param rm: the RelationshipMap to index
+	 */
+	public DisjointIndex(RelationshipMap rm)
+	{
+		//Get all classes in the map
+		HashSet<Integer> classes = new HashSet<Integer>(rm.getChildren());
+		classes.addAll(rm.getParents());
+		classes.addAll(rm.getDisjoint());
+		int max = -1;
+		for(Integer c : classes)
+			if(c > max)
+				max = c;
+		//Number the classes with disjoint clauses (which are stored in both
+		//directions, so they include all classes that are disjoint with any)
+		int[] disj = toSortedArray(rm.getDisjoint());
+		bit = new int[max + 1];
+		Arrays.fill(bit, -1);
+		for(int i = 0; i < disj.length; i++)
+			bit[disj[i]] = i;
+		words = (disj.length + 63) / 64;
+		lineage = new long[max + 1][];
+		disjoint = new long[max + 1][];
+		if(disj.length == 0)
+			return;
+		for(Integer c : classes)
+		{
+			Set<Integer> ancestors = rm.getSuperClasses(c,false);
+			long[] lin = new long[words];
+			long[] dis = new long[words];
+			boolean hasLineage = set(lin, c);
+			boolean hasDisjoint = false;
+			for(Integer d : rm.getDisjoint(c))
+				hasDisjoint |= set(dis, d);
+			for(Integer a : ancestors)
+			{
+				hasLineage |= set(lin, a);
+				for(Integer d : rm.getDisjoint(a))
+					hasDisjoint |= set(dis, d);
+			}
+			if(hasLineage)
+				lineage[c] = lin;
+			if(hasDisjoint)
+				disjoint[c] = dis;
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * @param class1: the first class to check for disjointness
+	 * @param class2: the second class to check for disjointness
+	 * @return whether the classes are disjoint considering transitivity
+	 */
+	public boolean areDisjoint(int class1, int class2)
+	{
+		return intersects(get(disjoint, class1), get(lineage, class2));
+	}
+
+	/**
+	 * @param descendants: the classes on the child side of a relationship
+	 * @param ancestors: the classes on the parent side of a relationship
+	 * @return whether any of the descendants is disjoint with any of the
+	 * ancestors considering transitivity
+	 */
+	public boolean anyDisjoint(Set<Integer> descendants, Set<Integer> ancestors)
+	{
+		if(words == 0)
+			return false;
+		long[] dis = union(disjoint, descendants);
+		if(dis == null)
+			return false;
+		return intersects(dis, union(lineage, ancestors));
+	}
+
+//Private Methods
+
+	private long[] get(long[][] sets, int classId)
+	{
+		if(classId < 0 || classId >= sets.length)
+			return null;
+		return sets[classId];
+	}
+
+	private boolean intersects(long[] a, long[] b)
+	{
+		if(a == null || b == null)
+			return false;
+		for(int i = 0; i < words; i++)
+			if((a[i] & b[i]) != 0)
+				return true;
+		return false;
+	}
+
+	//Sets the bit of the class, if it has one, and returns whether it did
+	private boolean set(long[] set, int classId)
+	{
+		if(classId < 0 || classId >= bit.length || bit[classId] == -1)
+			return false;
+		set[bit[classId] >> 6] |= 1L << bit[classId];
+		return true;
+	}
+
+	//Returns the union of the sets of the given classes (null if empty)
+	private long[] union(long[][] sets, Set<Integer> classes)
+	{
+		long[] union = null;
+		for(Integer c : classes)
+		{
+			long[] s = get(sets, c);
+			if(s == null)
+				continue;
+			if(union == null)
+				union = new long[words];
+			for(int i = 0; i < words; i++)
+				union[i] |= s[i];
+		}
+		return union;
+	}
+
+	private static int[] toSortedArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(Integer j : set)
+			array[i++] = j;
+		Arrays.sort(array);
+		return array;
+	}
+}
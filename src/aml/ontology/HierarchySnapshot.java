@@ -0,0 +1,248 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Binary snapshot of the closed hierarchical relations of a RelationshipMap.  *
+* The snapshot holds the ClassHierarchy of the map together with the URIs of  *
+* the classes and properties it references, and the checksum of the ontology  *
+* file it was built from. It is written once, after the transitive closure,   *
+* and read back through a memory-mapped file, so that opening the same file   *
+* again skips the closure. The URIs are looked up in the current URIMap, and  *
+* the indexes are remapped if they changed (e.g., if the ontology was opened  *
+* as the target rather than the source).                                      *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class HierarchySnapshot
+{
+
+//Attributes
+
+	//The header of the snapshot files
+	private static final int MAGIC = 0x414D4C48;
+	private static final int VERSION = 1;
+	private static final String CHARSET = "UTF-8";
+
+//Public Methods
+
+	/**
+	 * @param file: the ontology file
+	 * @return the checksum of the file (its CRC32 and its length)
+	 * @throws IOException
+	 */
+	public static String checksum(File file) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] buffer = new byte[65536];
+			for(int n = in.read(buffer); n != -1; n = in.read(buffer))
+				crc.update(buffer, 0, n);
+		}
+		finally
+		{
+			in.close();
+		}
+		return Long.toHexString(crc.getValue()) + "-" + file.length();
+	}
+
+	/**
+	 * @param file: the ontology file
+	 * @return the name of the snapshot of the file: its name plus the CRC32
+	 * of its canonical path, so that files with the same name in different
+	 * directories have different snapshots
+	 * @throws IOException
+	 */
+	public static String fileName(File file) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		crc.update(file.getCanonicalPath().getBytes(CHARSET));
+		return file.getName() + "-" + Long.toHexString(crc.getValue()) + ".hierarchy";
+	}
+
+	/**
+	 * Restores the closed hierarchical relations of a RelationshipMap from
+	 * a snapshot (should be called after the ontology is loaded and before
+	 * the transitive closure, which is then no longer needed)
+	 * @param rm: the RelationshipMap to restore, with the direct relations
+	 * @param uris: the URIMap with the indexes of the classes and properties
+	 * @param file: the snapshot file
+	 * @param checksum: the checksum of the ontology file
+	 * @return whether the snapshot was restored (false if the file doesn't
+	 * exist, was built from a different ontology file or is invalid)
+	 */
+	public static boolean restore(RelationshipMap rm, URIMap uris, File file, String checksum)
+	{
+		if(!file.isFile())
+			return false;
+		try
+		{
+			ByteBuffer in = map(file);
+			if(in.getInt() != MAGIC || in.getInt() != VERSION || !checksum.equals(readString(in)))
+				return false;
+			//The direct relations must be the ones the closure was run on
+			if(in.getInt() != rm.relationshipCount())
+				return false;
+			//Map the indexes in the snapshot to the current indexes
+			int count = in.getInt();
+			//Each entry has an index and a string length
+			if(count < 0 || count > in.remaining() / 8)
+				return false;
+			int[] ids = new int[count];
+			int[] newIds = new int[count];
+			int max = -1;
+			boolean identity = true;
+			for(int i = 0; i < count; i++)
+			{
+				ids[i] = in.getInt();
+				newIds[i] = uris.getIndex(readString(in));
+				if(ids[i] < 0 || newIds[i] == -1)
+					return false;
+				identity &= ids[i] == newIds[i];
+				max = Math.max(max, ids[i]);
+			}
+			ClassHierarchy h = ClassHierarchy.read(in);
+			if(!identity)
+			{
+				int[] map = new int[max + 1];
+				Arrays.fill(map, -1);
+				for(int i = 0; i < count; i++)
+					map[ids[i]] = newIds[i];
+				h = h.remap(map);
+				if(h == null)
+					return false;
+			}
+			rm.setClassHierarchy(h);
+			return true;
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+		//Thrown if the file is truncated or corrupted
+		catch(RuntimeException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Saves the closed hierarchical relations of a RelationshipMap to a
+	 * snapshot (should be called after the transitive closure)
+	 * @param rm: the closed RelationshipMap to save
+	 * @param uris: the URIMap with the URIs of the classes and properties
+	 * @param file: the snapshot file
+	 * @param checksum: the checksum of the ontology file
+	 * @param directCount: the number of direct class relationships in the map
+	 * (i.e., before the transitive closure)
+	 * @return whether the snapshot was saved (false if the map isn't closed
+	 * or references entities that aren't in the URIMap)
+	 * @throws IOException
+	 */
+	public static boolean save(RelationshipMap rm, URIMap uris, File file, String checksum,
+			int directCount) throws IOException
+	{
+		ClassHierarchy h = rm.getClassHierarchy();
+		if(h == null)
+			return false;
+		int[] ids = new int[h.indexes().size()];
+		String[] names = new String[ids.length];
+		int i = 0;
+		for(Integer id : h.indexes())
+		{
+			ids[i] = id;
+			names[i] = uris.getURI(id);
+			if(names[i] == null)
+				return false;
+			i++;
+		}
+		//Write to a temporary file first, so that a failed save doesn't
+		//leave a truncated snapshot behind
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, checksum);
+			out.writeInt(directCount);
+			out.writeInt(ids.length);
+			for(i = 0; i < ids.length; i++)
+			{
+				out.writeInt(ids[i]);
+				writeString(out, names[i]);
+			}
+			h.write(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		if(file.exists() && !file.delete())
+			return false;
+		return temp.renameTo(file);
+	}
+
+//Private Methods
+
+	//Maps the whole file into memory (the buffer stays valid after the
+	//file is closed)
+	private static ByteBuffer map(File file) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return buffer;
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	private static String readString(ByteBuffer in) throws IOException
+	{
+		//Checked before allocating, so that a corrupted length can't
+		//exhaust the heap
+		int length = in.getInt();
+		if(length < 0 || length > in.remaining())
+			throw new IOException("Invalid string length: " + length);
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, CHARSET);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		byte[] bytes = s.getBytes(CHARSET);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+}
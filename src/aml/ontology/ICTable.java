@@ -0,0 +1,126 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Table of the information content (IC) of the classes of an Ontology, both   *
+* according to Seco (intrinsic) and to Resnik (subclass frequency). The IC    *
+* values are computed once per class from the transitive closure of the       *
+* RelationshipMap and stored in dense arrays indexed by URIMap index.         *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import aml.AML;
+
+public class ICTable
+{
+
+//Attributes
+
+	//The RelationshipMap from which the IC values are computed
+	private AbstractRelationshipMap rels;
+	//The number of classes used to normalize the IC values
+	private int maxLeaves;
+	//The Seco and Resnik IC of each class, indexed by URIMap index
+	//(classes that were not precomputed are marked with NaN)
+	private double[] seco;
+	private double[] resnik;
+
+//Constructors
+
+	/**
+	 * Builds the IC table for the given set of classes
+	 * (should be called after the transitive closure of the RelationshipMap)
+	 * @param rels: the RelationshipMap from which to compute the IC
+	 * @param classes: the set of classes for which to precompute the IC
+	 * @param maxLeaves: the number of classes used to normalize the IC
+	 */
+	public ICTable(AbstractRelationshipMap rels, Set<Integer> classes, int maxLeaves)
+	{
+		this.rels = rels;
+		this.maxLeaves = maxLeaves;
+		int size = AML.getInstance().getURIMap().size() + 1;
+		for(Integer i : classes)
+			if(i >= size)
+				size = i + 1;
+		seco = new double[size];
+		resnik = new double[size];
+		Arrays.fill(seco, Double.NaN);
+		Arrays.fill(resnik, Double.NaN);
+		for(Integer i : classes)
+		{
+			seco[i] = seco(rels.getDescendants(i).size(), maxLeaves);
+			resnik[i] = resnik(rels.subClassCount(i,false), maxLeaves);
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * @return the number of classes used to normalize the IC values
+	 */
+	public int getMaxLeaves()
+	{
+		return maxLeaves;
+	}
+
+	/**
+	 * @param classId: the index of the class
+	 * @return the Resnik IC of the class
+	 */
+	public double getResnik(int classId)
+	{
+		if(classId < resnik.length && !Double.isNaN(resnik[classId]))
+			return resnik[classId];
+		return resnik(rels.subClassCount(classId,false), maxLeaves);
+	}
+
+	/**
+	 * @param classId: the index of the class
+	 * @return the Seco IC of the class
+	 */
+	public double getSeco(int classId)
+	{
+		if(classId < seco.length && !Double.isNaN(seco[classId]))
+			return seco[classId];
+		return seco(rels.getDescendants(classId).size(), maxLeaves);
+	}
+
+	/**
+	 * Computes the Resnik IC of a class given its number of subclasses
+	 * @param subClasses: the number of (direct or indirect) subclasses of the class
+	 * @param maxLeaves: the number of classes used to normalize the IC
+	 * @return the Resnik IC
+	 */
+	public static double resnik(int subClasses, int maxLeaves)
+	{
+		int allDescendants = subClasses + 1;
+		double freqC = allDescendants / maxLeaves;
+		return -Math.log(freqC);
+	}
+
+	/**
+	 * Computes the normalized Seco IC of a class given its number of descendants
+	 * @param descendants: the number of descendants of the class
+	 * @param maxLeaves: the number of classes used to normalize the IC
+	 * @return the Seco IC
+	 */
+	public static double seco(int descendants, int maxLeaves)
+	{
+		int allDescendants = descendants + 1;
+		double ic = (double) (Math.log(allDescendants) / Math.log(maxLeaves));
+		return (1 - ic);
+	}
+}
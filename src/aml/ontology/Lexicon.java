@@ -31,6 +31,7 @@ import aml.settings.EntityType;
 import aml.settings.LexicalType;
 import aml.util.MapSorter;
 import aml.util.StringParser;
+import aml.util.StringPool;
 
 
 public class Lexicon
@@ -42,10 +43,16 @@ public class Lexicon
 	private Table3List<String,Integer,Provenance>[] entityNames;
 	//The table of entity indexes (Integer) to names (String) organized by EntityType
 	private Table3List<Integer,String,Provenance>[] nameEntities;
+	//Frozen, columnar copy of the tables above organized by EntityType, which
+	//replaces them during the matching phase, until the next change to the Lexicon
+	private LexiconIndex[] frozen;
 	//The language counts
 	private HashMap<String,Integer> langCount;
 	//The URIMap
 	private URIMap uris;
+	//The pool of names shared by the Lexicons of the open ontologies
+	//(null for copies, which are temporary and so shouldn't fill the pool)
+	private StringPool names;
 	
 //Constructors
 
@@ -57,6 +64,7 @@ public class Lexicon
 	public Lexicon()
 	{
 		uris = AML.getInstance().getURIMap();
+		names = AML.getInstance().getNamePool();
 		entityNames = new Table3List[EntityType.values().length];
 		for(int i = 0; i < entityNames.length; i++)
 			entityNames[i] = new Table3List<String,Integer,Provenance>();
@@ -74,13 +82,21 @@ public class Lexicon
 	public Lexicon(Lexicon l)
 	{
 		uris = AML.getInstance().getURIMap();
+		names = null;
+		langCount = new HashMap<String,Integer>(l.langCount);
+		//A frozen Lexicon is copied by sharing its LexiconIndexes, which
+		//are read-only (each copy thaws its own tables when changed)
+		if(l.frozen != null)
+		{
+			frozen = l.frozen.clone();
+			return;
+		}
 		entityNames = new Table3List[EntityType.values().length];
 		for(int i = 0; i < entityNames.length; i++)
 			entityNames[i] = new Table3List<String,Integer,Provenance>(l.entityNames[i]);
 		nameEntities = new Table3List[EntityType.values().length];
 		for(int i = 0; i < nameEntities.length; i++)
 			nameEntities[i] = new Table3List<Integer,String,Provenance>(l.nameEntities[i]);
-		langCount = new HashMap<String,Integer>(l.langCount);
 	}
 	
 //Public Methods
@@ -139,6 +155,8 @@ public class Lexicon
 			}
 		}
 		//Then update the tables
+		thaw();
+		s = intern(s);
 		entityNames[index].add(s,id,p);
 		nameEntities[index].add(id,s,p);
 		Integer i = langCount.get(language);
@@ -155,7 +173,10 @@ public class Lexicon
 	 */
 	public boolean contains(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].contains(name);
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].contains(name);
+		return entityNames[index].contains(name);
 	}
 	
 	/**
@@ -165,7 +186,10 @@ public class Lexicon
 	 */
 	public boolean contains(int id, String name)
 	{
-		return nameEntities[getIndex(uris.getType(id))].contains(id, name);
+		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].contains(name, id);
+		return nameEntities[index].contains(id, name);
 	}
 	
 	/**
@@ -186,6 +210,8 @@ public class Lexicon
 	{
 		EntityType e = uris.getType(id);
 		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].containsNonSmallFormula(id);
 		if(!nameEntities[index].contains(id))
 			return false;
 		for(String n : nameEntities[index].keySet(id))
@@ -205,7 +231,10 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e)
 	{
-		return nameEntities[getIndex(e)].keyCount();
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].entityCount();
+		return nameEntities[index].keyCount();
 	}
 	
 	/**
@@ -215,7 +244,10 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].entryCount(name);
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].entityCount(name);
+		return entityNames[index].entryCount(name);
 	}
 	
 	/**
@@ -238,7 +270,33 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e, String name, Provenance p)
 	{
-		return entityNames[getIndex(e)].entryCount(name, p);
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].entityCount(name, p.getLanguage());
+		int count = 0;
+		Set<Integer> hits = entityNames[index].keySet(name);
+		if(hits == null)
+			return count;
+		for(Integer i : hits)
+			if(entityNames[index].get(name, i).contains(p))
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Freezes the entries of the Lexicon into LexiconIndexes, which replace
+	 * its tables (for faster lookups with less memory, and with the corrected
+	 * weights computed in advance) until the next entry is added to the Lexicon
+	 */
+	public void freeze()
+	{
+		if(frozen != null)
+			return;
+		frozen = new LexiconIndex[entityNames.length];
+		for(int i = 0; i < frozen.length; i++)
+			frozen[i] = LexiconIndex.build(entityNames[i]);
+		entityNames = null;
+		nameEntities = null;
 	}
 	
 	/**
@@ -248,9 +306,9 @@ public class Lexicon
 	 */	
 	public Vector<Provenance> get(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		if(entityNames[index].contains(name, id))
-			return entityNames[index].get(name, id);
+		Vector<Provenance> provs = getProvenances(getIndex(uris.getType(id)), name, id);
+		if(provs != null)
+			return provs;
 		return new Vector<Provenance>();
 	}
 	
@@ -304,12 +362,13 @@ public class Lexicon
 		int index = getIndex(uris.getType(id));
 		String lang = AML.getInstance().getLabelLanguage();
 		Map<String,Provenance> results = new HashMap<String,Provenance>();
-		if(!nameEntities[index].contains(id))
+		Set<String> hits = getNames(id);
+		if(hits.isEmpty())
 			return "";
 
-		for(String n : nameEntities[index].keySet(id))
+		for(String n : hits)
 		{
-			for(Provenance p : nameEntities[index].get(id, n))
+			for(Provenance p : getProvenances(index, n, id))
 			{
 				if(p.getLanguage().equals(lang))
 				{
@@ -320,8 +379,8 @@ public class Lexicon
 		}
 		if(results.size() == 0)
 		{
-			for(String n : nameEntities[index].keySet(id))
-				results.put(n,nameEntities[index].get(id, n).iterator().next());
+			for(String n : hits)
+				results.put(n,getProvenances(index, n, id).iterator().next());
 		}
 		results = MapSorter.sortDescending(results);
 		return results.keySet().iterator().next();
@@ -337,6 +396,8 @@ public class Lexicon
 	{
 		EntityType e = uris.getType(id);
 		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getCorrectedWeight(name, id);
 		if(!entityNames[index].contains(name, id))
 			return 0.0;
 		double weight = 0.0;
@@ -364,6 +425,8 @@ public class Lexicon
 	{
 		EntityType e = uris.getType(id);
 		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getCorrectedWeight(name, id, lang);
 		Vector<Provenance> provs = entityNames[index].get(name, id);
 		if(provs == null)
 			return 0.0;
@@ -384,7 +447,10 @@ public class Lexicon
 	 */
 	public Set<Integer> getEntities(EntityType e)
 	{
-		return nameEntities[getIndex(e)].keySet();
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getEntities();
+		return nameEntities[index].keySet();
 	}
 	
 	/**
@@ -394,7 +460,10 @@ public class Lexicon
 	 */
 	public Set<Integer> getEntities(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].keySet(name);
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getEntities(name);
+		return entityNames[index].keySet(name);
 	}
 	
 	/**
@@ -406,12 +475,12 @@ public class Lexicon
 	public Set<Integer> getEntities(EntityType e, String name, String type)
 	{
 		int index = getIndex(e);
-		Set<Integer> hits = entityNames[index].keySet(name);
+		Set<Integer> hits = getEntities(e,name);
 		HashSet<Integer> entitiesType = new HashSet<Integer>();
 		if(hits == null)
 			return entitiesType;
 		for(Integer i : hits)
-			for(Provenance p : entityNames[index].get(name,i))
+			for(Provenance p : getProvenances(index,name,i))
 				if(p.getType().equals(type))
 					entitiesType.add(i);
 		return entitiesType;
@@ -427,6 +496,8 @@ public class Lexicon
 	public Set<Integer> getEntitiesWithLanguage(EntityType e, String name, String lang)
 	{
 		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getEntitiesWithLanguage(name, lang);
 		Set<Integer> hits = entityNames[index].keySet(name);
 		HashSet<Integer> classesLang = new HashSet<Integer>();
 		if(hits == null)
@@ -446,7 +517,7 @@ public class Lexicon
 	public Vector<Integer> getEntitiesWithSource(EntityType e, String source)
 	{
 		Vector<Integer> entitiesWithSource = new Vector<Integer>(0,1);
-		Set<Integer> ts = nameEntities[getIndex(e)].keySet();
+		Set<Integer> ts = getEntities(e);
 		for(Integer i : ts)
 			if(hasNameFromSource(i,source) && !entitiesWithSource.contains(i))
 				entitiesWithSource.add(i);
@@ -460,7 +531,7 @@ public class Lexicon
 	public Set<Integer> getExtendedEntities(EntityType e)
 	{
 		HashSet<Integer> extendedEntities = new HashSet<Integer>(0,1);
-		Set<Integer> ts = nameEntities[getIndex(e)].keySet();
+		Set<Integer> ts = getEntities(e);
 		for(Integer i : ts)
 			if(hasExternalName(i))
 				extendedEntities.add(i);
@@ -473,15 +544,10 @@ public class Lexicon
 	 */
 	public Set<String> getInternalNames(int id)
 	{
-		int index = getIndex(uris.getType(id));
 		HashSet<String> localHits = new HashSet<String>();
-		if(nameEntities[index].contains(id))
-		{
-			Set<String> hits = nameEntities[index].keySet(id);
-			for(String s : hits)
-				if(!isExternal(s,id))
-					localHits.add(s);
-		}
+		for(String s : getNames(id))
+			if(!isExternal(s,id))
+				localHits.add(s);
 		return localHits;
 	}
 	
@@ -493,7 +559,7 @@ public class Lexicon
 	 */
 	public Set<Integer> getInternalEntities(EntityType e, String name)
 	{
-		Set<Integer> hits = entityNames[getIndex(e)].keySet(name);
+		Set<Integer> hits = getEntities(e,name);
 		HashSet<Integer> localHits = new HashSet<Integer>();
 		if(hits == null)
 			return localHits;
@@ -528,12 +594,12 @@ public class Lexicon
 	public Set<String> getLanguages(EntityType e, String name)
 	{
 		int index = getIndex(e);
-		Set<Integer> hits = entityNames[index].keySet(name);
+		Set<Integer> hits = getEntities(e,name);
 		HashSet<String> langs = new HashSet<String>();
 		if(hits == null)
 			return langs;
 		for(Integer i : hits)
-			for(Provenance p : entityNames[index].get(name,i))
+			for(Provenance p : getProvenances(index,name,i))
 				langs.add(p.getLanguage());
 		return langs;
 	}
@@ -545,8 +611,7 @@ public class Lexicon
 	 */
 	public Set<String> getLanguages(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> hits = entityNames[index].get(name,id);
+		Vector<Provenance> hits = getProvenances(getIndex(uris.getType(id)),name,id);
 		HashSet<String> langs = new HashSet<String>();
 		if(hits == null)
 			return langs;
@@ -561,7 +626,10 @@ public class Lexicon
 	 */
 	public Set<String> getNames(EntityType e)
 	{
-		return entityNames[getIndex(e)].keySet();
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].getNames();
+		return entityNames[index].keySet();
 	}
 
 	/**
@@ -571,8 +639,13 @@ public class Lexicon
 	public Set<String> getNames(int id)
 	{
 		int index = getIndex(uris.getType(id));
-		if(nameEntities[index].contains(id))
-			return nameEntities[index].keySet(id);
+		Set<String> hits;
+		if(frozen != null)
+			hits = frozen[index].getNames(id);
+		else
+			hits = nameEntities[index].keySet(id);
+		if(hits != null)
+			return hits;
 		return new HashSet<String>();
 	}
 	
@@ -584,6 +657,8 @@ public class Lexicon
 	public Set<String> getNames(int id, LexicalType type)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].getNames(id, type);
 		HashSet<String> namesType = new HashSet<String>();
 		if(nameEntities[index].contains(id))
 		{
@@ -603,6 +678,8 @@ public class Lexicon
 	public Set<String> getNamesWithLanguage(int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].getNamesWithLanguage(id, lang);
 		HashSet<String> namesLang = new HashSet<String>();
 		if(nameEntities[index].contains(id))
 		{
@@ -621,8 +698,7 @@ public class Lexicon
 	 */
 	public Set<String> getSources(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> provs = entityNames[index].get(name, id);
+		Vector<Provenance> provs = getProvenances(getIndex(uris.getType(id)), name, id);
 		HashSet<String> sources = new HashSet<String>();
 		if(provs == null)
 			return sources;
@@ -638,10 +714,9 @@ public class Lexicon
 	 */
 	public LexicalType getType(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
 		LexicalType type = null;
 		double weight = 0.0;
-		for(Provenance p : entityNames[index].get(name, id))
+		for(Provenance p : getProvenances(getIndex(uris.getType(id)), name, id))
 		{
 			if(p.getWeight() > weight)
 			{
@@ -659,8 +734,7 @@ public class Lexicon
 	 */
 	public Set<LexicalType> getTypes(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> provs = entityNames[index].get(name, id);
+		Vector<Provenance> provs = getProvenances(getIndex(uris.getType(id)), name, id);
 		HashSet<LexicalType> types = new HashSet<LexicalType>();
 		if(provs == null)
 			return types;
@@ -677,6 +751,8 @@ public class Lexicon
 	public double getWeight(String name, int id)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].getWeight(name, id);
 		double weight = 0.0;
 		if(nameEntities[index].contains(id,name))
 		{
@@ -696,6 +772,8 @@ public class Lexicon
 	public double getWeight(String name, int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].getWeight(name, id, lang);
 		if(!entityNames[index].contains(name, id))
 			return 0.0;
 		Vector<Provenance> provs = entityNames[index].get(name, id);
@@ -745,6 +823,8 @@ public class Lexicon
 	public boolean isExternal(String name, int id)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].isExternal(name, id);
 		if(nameEntities[index].contains(id,name))
 		{
 			Vector<Provenance> provs = nameEntities[index].get(id, name);
@@ -766,6 +846,8 @@ public class Lexicon
 	public boolean isExternal(String name, int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].isExternal(name, id, lang);
 		if(!entityNames[index].contains(name,id))
 			return false;
 		Vector<Provenance> provs = entityNames[index].get(name, id);
@@ -784,13 +866,24 @@ public class Lexicon
 		return StringParser.isFormula(name);
 	}
 	
+	/**
+	 * @return whether the entries of the Lexicon are frozen
+	 */
+	public boolean isFrozen()
+	{
+		return frozen != null;
+	}
+	
 	/**
 	 * @param e: the EntityType to get from the Lexicon
 	 * @return the number of names in the Lexicon
 	 */
 	public int nameCount(EntityType e)
 	{
-		return entityNames[getIndex(e)].keyCount();
+		int index = getIndex(e);
+		if(frozen != null)
+			return frozen[index].nameCount();
+		return entityNames[index].keyCount();
 	}
 	
 	/**
@@ -800,6 +893,8 @@ public class Lexicon
 	public int nameCount(int id)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].nameCount(id);
 		return nameEntities[index].entryCount(id);
 	}
 	
@@ -810,6 +905,8 @@ public class Lexicon
 	 */
 	public int nameCount(int id, LexicalType type)
 	{
+		if(frozen != null)
+			return frozen[getIndex(uris.getType(id))].nameCount(id, type);
 		return getNames(id,type).size();
 	}
 	
@@ -823,6 +920,8 @@ public class Lexicon
 	public int nameCount(int id, LexicalType type, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		if(frozen != null)
+			return frozen[index].nameCount(id, type, lang);
 		Set<String> hits = nameEntities[index].keySet(id);
 		int count = 0;
 		if(hits == null)
@@ -840,8 +939,12 @@ public class Lexicon
 	public int size()
 	{
 		int size = 0;
-		for(Table3List<String,Integer,Provenance> t : entityNames)
-			size += t.size();
+		if(frozen != null)
+			for(LexiconIndex x : frozen)
+				size += x.size();
+		else
+			for(Table3List<String,Integer,Provenance> t : entityNames)
+				size += t.size();
 		return size;
 	}
 	
@@ -856,4 +959,40 @@ public class Lexicon
 				return i;
 		return -1;
 	}
+	
+	//Returns the provenances of a name for an entity of the EntityType with
+	//the given index, or null if the Lexicon doesn't contain the name for it
+	private Vector<Provenance> getProvenances(int index, String name, int id)
+	{
+		if(frozen != null)
+			return frozen[index].get(name, id);
+		return entityNames[index].get(name, id);
+	}
+	
+	//Returns the pooled copy of the String (or the String itself if there
+	//is no pool), so that equal names are stored once
+	private String intern(String s)
+	{
+		if(names == null)
+			return s;
+		return names.canonical(s);
+	}
+	
+	//Restores the tables of the Lexicon from the LexiconIndexes,
+	//so that entries can be added to them
+	@SuppressWarnings("unchecked")
+	private void thaw()
+	{
+		if(frozen == null)
+			return;
+		entityNames = new Table3List[frozen.length];
+		nameEntities = new Table3List[frozen.length];
+		for(int i = 0; i < frozen.length; i++)
+		{
+			entityNames[i] = new Table3List<String,Integer,Provenance>();
+			nameEntities[i] = new Table3List<Integer,String,Provenance>();
+			frozen[i].fill(entityNames[i], nameEntities[i]);
+		}
+		frozen = null;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,821 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Frozen, columnar copy of the entries of a Lexicon for one EntityType.       *
+* The names are sorted and numbered (with an open-addressing table from name  *
+* to number) and the (name,entity) pairs are stored as int arrays sorted both *
+* by name and by entity (compressed sparse rows). The Provenances of each     *
+* pair are stored as parallel primitive columns of weight, LexicalType,       *
+* language and source (the last two as indexes in small dictionaries), in     *
+* their order in the Lexicon, so that lookups don't walk nested maps.         *
+* The corrected weights of each pair and Provenance (which depend on how many *
+* names of the same type the entity has) are computed once, when the index is *
+* built, as the index is discarded whenever an entry is added to the Lexicon. *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.settings.LexicalType;
+import aml.util.IntArraySet;
+import aml.util.Table3List;
+
+public class LexiconIndex
+{
+
+//Attributes
+
+	private static final LexicalType[] TYPES = LexicalType.values();
+	//The names, sorted (the id of a name is its position in the array)
+	private String[] names;
+	//The table of names, with the id + 1 of the name in each used slot
+	//(0 marks an empty slot), and the hash code of the name
+	private int[] nameTable;
+	private int[] nameHash;
+	//The entities of each name (from nameStart[n] to nameStart[n+1]), sorted,
+	//with the position of each in this array being the id of the pair
+	private int[] nameStart;
+	private int[] pairEntity;
+	//The Provenances of each pair (from provStart[p] to provStart[p+1])
+	private int[] provStart;
+	private double[] weight;
+	private byte[] type;
+	private int[] language;
+	private int[] source;
+	//The corrected weight of each pair (that of its best Provenance) and of
+	//each Provenance (for the lookups by language)
+	private double[] pairCorrectedWeight;
+	private double[] correctedWeight;
+	//The dictionaries of languages and sources of the Provenances
+	private String[] languages;
+	private String[] sources;
+	//The entities, sorted, and the row of each entity index (minus the
+	//first entity) plus one (0 for indexes without names)
+	private int[] entities;
+	private int[] row;
+	//The names of each row (from entityStart[r] to entityStart[r+1]),
+	//sorted by id, and the corresponding pairs
+	private int[] entityStart;
+	private int[] entityName;
+	private int[] entityPair;
+
+//Constructors
+
+	private LexiconIndex(Table3List<String,Integer,Provenance> table)
+	{
+		names = table.keySet().toArray(new String[0]);
+		Arrays.sort(names);
+		nameTable = new int[Integer.highestOneBit(Math.max(names.length,1)) * 4];
+		nameHash = new int[nameTable.length];
+		int mask = nameTable.length - 1;
+		nameStart = new int[names.length + 1];
+		int pairs = 0;
+		int provs = 0;
+		for(int n = 0; n < names.length; n++)
+		{
+			int h = hash(names[n]);
+			int k = h & mask;
+			while(nameTable[k] != 0)
+				k = (k + 1) & mask;
+			nameTable[k] = n + 1;
+			nameHash[k] = h;
+			Set<Integer> nameEntities = table.keySet(names[n]);
+			for(Integer i : nameEntities)
+				provs += table.get(names[n],i).size();
+			pairs += nameEntities.size();
+			nameStart[n+1] = pairs;
+		}
+		pairEntity = new int[pairs];
+		provStart = new int[pairs + 1];
+		weight = new double[provs];
+		type = new byte[provs];
+		language = new int[provs];
+		source = new int[provs];
+		HashMap<String,Integer> languageIndex = new HashMap<String,Integer>();
+		HashMap<String,Integer> sourceIndex = new HashMap<String,Integer>();
+		int p = 0;
+		int k = 0;
+		for(int n = 0; n < names.length; n++)
+		{
+			int[] nameEntities = toSortedArray(table.keySet(names[n]));
+			for(int i : nameEntities)
+			{
+				pairEntity[p++] = i;
+				for(Provenance prov : table.get(names[n],i))
+				{
+					weight[k] = prov.getWeight();
+					type[k] = (byte)prov.getType().ordinal();
+					language[k] = code(languageIndex, prov.getLanguage());
+					source[k] = code(sourceIndex, prov.getSource());
+					k++;
+				}
+				provStart[p] = k;
+			}
+		}
+		languages = toArray(languageIndex);
+		sources = toArray(sourceIndex);
+
+		//Index the pairs by entity (as the names are visited in order of id,
+		//the names of each entity end up sorted by id)
+		HashSet<Integer> entitySet = new HashSet<Integer>();
+		for(int i : pairEntity)
+			entitySet.add(i);
+		entities = toSortedArray(entitySet);
+		row = new int[entities.length == 0 ? 0 : entities[entities.length-1] - entities[0] + 1];
+		for(int r = 0; r < entities.length; r++)
+			row[entities[r] - entities[0]] = r + 1;
+		entityStart = new int[entities.length + 1];
+		for(int i : pairEntity)
+			entityStart[row[i - entities[0]]]++;
+		for(int r = 0; r < entities.length; r++)
+			entityStart[r+1] += entityStart[r];
+		int[] next = Arrays.copyOf(entityStart, entities.length);
+		entityName = new int[pairs];
+		entityPair = new int[pairs];
+		for(int n = 0; n < names.length; n++)
+		{
+			for(p = nameStart[n]; p < nameStart[n+1]; p++)
+			{
+				int q = next[row[pairEntity[p] - entities[0]] - 1]++;
+				entityName[q] = n;
+				entityPair[q] = p;
+			}
+		}
+
+		//Compute the corrected weights, counting the names of each entity
+		//by type and the Provenances by type and language
+		pairCorrectedWeight = new double[pairs];
+		correctedWeight = new double[provs];
+		int[] typeCount = new int[TYPES.length];
+		int[] typeLangCount = new int[TYPES.length * languages.length];
+		boolean[] seen = new boolean[TYPES.length];
+		for(int r = 0; r < entities.length; r++)
+		{
+			Arrays.fill(typeCount, 0);
+			Arrays.fill(typeLangCount, 0);
+			for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+			{
+				p = entityPair[q];
+				Arrays.fill(seen, false);
+				for(k = provStart[p]; k < provStart[p+1]; k++)
+				{
+					if(!seen[type[k]])
+					{
+						seen[type[k]] = true;
+						typeCount[type[k]]++;
+					}
+					typeLangCount[type[k] * languages.length + language[k]]++;
+				}
+			}
+			for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+			{
+				p = entityPair[q];
+				double w = 0.0;
+				double correction = 0.0;
+				for(k = provStart[p]; k < provStart[p+1]; k++)
+				{
+					if(weight[k] > w)
+					{
+						w = weight[k];
+						correction = typeCount[type[k]]/100.0;
+					}
+					correctedWeight[k] = weight[k] -
+							typeLangCount[type[k] * languages.length + language[k]]/100.0;
+				}
+				pairCorrectedWeight[p] = w - correction;
+			}
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * Builds the LexiconIndex of the given table of Lexicon entries
+	 * @param table: the table of name -> entity -> Provenance
+	 * @return the LexiconIndex
+	 */
+	public static LexiconIndex build(Table3List<String,Integer,Provenance> table)
+	{
+		return new LexiconIndex(table);
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @return whether the LexiconIndex contains the name
+	 */
+	public boolean contains(String name)
+	{
+		return nameId(name) > -1;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return whether the LexiconIndex contains the name for the entity
+	 */
+	public boolean contains(String name, int id)
+	{
+		return pair(name,id) > -1;
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return whether the LexiconIndex contains a name for the entity
+	 */
+	public boolean contains(int id)
+	{
+		return row(id) > -1;
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return whether the entity has a name other than a small formula
+	 * (i.e., < 10 characters)
+	 */
+	public boolean containsNonSmallFormula(int id)
+	{
+		int r = row(id);
+		if(r == -1)
+			return false;
+		byte formula = (byte)LexicalType.FORMULA.ordinal();
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+		{
+			if(names[entityName[q]].length() >= 10)
+				return true;
+			int p = entityPair[q];
+			for(int k = provStart[p]; k < provStart[p+1]; k++)
+				if(type[k] != formula)
+					return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of entities in the LexiconIndex
+	 */
+	public int entityCount()
+	{
+		return entities.length;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @return the number of entries with the name (one per entity and language)
+	 */
+	public int entityCount(String name)
+	{
+		int n = nameId(name);
+		if(n == -1)
+			return 0;
+		return provStart[nameStart[n+1]] - provStart[nameStart[n]];
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param lang: the language to search in the LexiconIndex
+	 * @return the number of entities with the name in the given language
+	 */
+	public int entityCount(String name, String lang)
+	{
+		int n = nameId(name);
+		int l = languageId(lang);
+		int count = 0;
+		if(n == -1 || l == -1)
+			return count;
+		for(int p = nameStart[n]; p < nameStart[n+1]; p++)
+			if(provenance(p,l) > -1)
+				count++;
+		return count;
+	}
+
+	/**
+	 * Fills the given tables with the entries in the LexiconIndex, in the
+	 * order they had in the table the LexiconIndex was built from
+	 * @param entityNames: the table of name -> entity -> Provenance to fill
+	 * @param nameEntities: the table of entity -> name -> Provenance to fill
+	 */
+	public void fill(Table3List<String,Integer,Provenance> entityNames,
+			Table3List<Integer,String,Provenance> nameEntities)
+	{
+		for(int n = 0; n < names.length; n++)
+		{
+			for(int p = nameStart[n]; p < nameStart[n+1]; p++)
+			{
+				for(int k = provStart[p]; k < provStart[p+1]; k++)
+				{
+					Provenance prov = getProvenance(k);
+					entityNames.add(names[n], pairEntity[p], prov);
+					nameEntities.add(pairEntity[p], names[n], prov);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return the Provenances of the name for the entity, or null if
+	 * the LexiconIndex doesn't contain the name for the entity
+	 */
+	public Vector<Provenance> get(String name, int id)
+	{
+		int p = pair(name,id);
+		if(p == -1)
+			return null;
+		Vector<Provenance> provs = new Vector<Provenance>(provStart[p+1] - provStart[p]);
+		for(int k = provStart[p]; k < provStart[p+1]; k++)
+			provs.add(getProvenance(k));
+		return provs;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return the weight of the best Provenance of the name for the entity,
+	 * with a correction factor depending on how many names of the type of
+	 * that Provenance the entity has
+	 */
+	public double getCorrectedWeight(String name, int id)
+	{
+		int p = pair(name,id);
+		if(p == -1)
+			return 0.0;
+		return pairCorrectedWeight[p];
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param lang: the language to search in the LexiconIndex
+	 * @return the weight of the Provenance of the name for the entity in
+	 * the given language, with a correction factor depending on how many
+	 * names of its type and language the entity has
+	 */
+	public double getCorrectedWeight(String name, int id, String lang)
+	{
+		int p = pair(name,id);
+		int l = languageId(lang);
+		if(p == -1 || l == -1)
+			return 0.0;
+		int k = provenance(p,l);
+		if(k == -1)
+			return 0.0;
+		return correctedWeight[k];
+	}
+
+	/**
+	 * @return the entities in the LexiconIndex
+	 */
+	public Set<Integer> getEntities()
+	{
+		return new IntArraySet(entities);
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @return the entities with the name, or null if the LexiconIndex
+	 * doesn't contain the name
+	 */
+	public Set<Integer> getEntities(String name)
+	{
+		int n = nameId(name);
+		if(n == -1)
+			return null;
+		return new IntArraySet(pairEntity, nameStart[n], nameStart[n+1]);
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param lang: the language to search in the LexiconIndex
+	 * @return the entities with the name in the given language
+	 */
+	public Set<Integer> getEntitiesWithLanguage(String name, String lang)
+	{
+		HashSet<Integer> entitiesLang = new HashSet<Integer>();
+		int n = nameId(name);
+		int l = languageId(lang);
+		if(n == -1 || l == -1)
+			return entitiesLang;
+		for(int p = nameStart[n]; p < nameStart[n+1]; p++)
+			if(provenance(p,l) > -1)
+				entitiesLang.add(pairEntity[p]);
+		return entitiesLang;
+	}
+
+	/**
+	 * @return the names in the LexiconIndex
+	 */
+	public Set<String> getNames()
+	{
+		return new NameSet(null, 0, names.length);
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return the names of the entity, or null if it has none
+	 */
+	public Set<String> getNames(int id)
+	{
+		int r = row(id);
+		if(r == -1)
+			return null;
+		return new NameSet(entityName, entityStart[r], entityStart[r+1]);
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param t: the type of the names to get
+	 * @return the names of the entity with a Provenance of the given type
+	 */
+	public Set<String> getNames(int id, LexicalType t)
+	{
+		HashSet<String> namesType = new HashSet<String>();
+		int r = row(id);
+		if(r == -1)
+			return namesType;
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+		{
+			int p = entityPair[q];
+			for(int k = provStart[p]; k < provStart[p+1]; k++)
+			{
+				if(type[k] == t.ordinal())
+				{
+					namesType.add(names[entityName[q]]);
+					break;
+				}
+			}
+		}
+		return namesType;
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param lang: the language of the names to get
+	 * @return the names of the entity in the given language
+	 */
+	public Set<String> getNamesWithLanguage(int id, String lang)
+	{
+		HashSet<String> namesLang = new HashSet<String>();
+		int r = row(id);
+		int l = languageId(lang);
+		if(r == -1 || l == -1)
+			return namesLang;
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+			if(provenance(entityPair[q],l) > -1)
+				namesLang.add(names[entityName[q]]);
+		return namesLang;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return the best weight of the name for the entity
+	 */
+	public double getWeight(String name, int id)
+	{
+		int p = pair(name,id);
+		double w = 0.0;
+		if(p == -1)
+			return w;
+		for(int k = provStart[p]; k < provStart[p+1]; k++)
+			if(weight[k] > w)
+				w = weight[k];
+		return w;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param lang: the language to search in the LexiconIndex
+	 * @return the weight of the name for the entity in the given language
+	 */
+	public double getWeight(String name, int id, String lang)
+	{
+		int p = pair(name,id);
+		int l = languageId(lang);
+		if(p == -1 || l == -1)
+			return 0.0;
+		int k = provenance(p,l);
+		if(k == -1)
+			return 0.0;
+		return weight[k];
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return whether all Provenances of the name for the entity are external
+	 * (false if the LexiconIndex doesn't contain the name for the entity)
+	 */
+	public boolean isExternal(String name, int id)
+	{
+		int p = pair(name,id);
+		if(p == -1)
+			return false;
+		for(int k = provStart[p]; k < provStart[p+1]; k++)
+			if(sources[source[k]].equals(""))
+				return false;
+		return true;
+	}
+
+	/**
+	 * @param name: the name to search in the LexiconIndex
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param lang: the language to search in the LexiconIndex
+	 * @return whether the Provenance of the name for the entity in the
+	 * given language is external
+	 */
+	public boolean isExternal(String name, int id, String lang)
+	{
+		int p = pair(name,id);
+		int l = languageId(lang);
+		if(p == -1 || l == -1)
+			return false;
+		int k = provenance(p,l);
+		return k > -1 && !sources[source[k]].equals("");
+	}
+
+	/**
+	 * @return the number of names in the LexiconIndex
+	 */
+	public int nameCount()
+	{
+		return names.length;
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @return the number of entries with the entity (one per name and language)
+	 */
+	public int nameCount(int id)
+	{
+		int r = row(id);
+		int count = 0;
+		if(r == -1)
+			return count;
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+			count += provStart[entityPair[q]+1] - provStart[entityPair[q]];
+		return count;
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param t: the type of the names to count
+	 * @return the number of names of the entity with a Provenance of the given type
+	 */
+	public int nameCount(int id, LexicalType t)
+	{
+		return nameCount(id,(byte)t.ordinal());
+	}
+
+	/**
+	 * @param id: the index of the entity to search in the LexiconIndex
+	 * @param t: the type of the Provenances to count
+	 * @param lang: the language of the Provenances to count
+	 * @return the number of Provenances of the names of the entity
+	 * with the given type and language
+	 */
+	public int nameCount(int id, LexicalType t, String lang)
+	{
+		int l = languageId(lang);
+		if(l == -1)
+			return 0;
+		return nameCount(id,(byte)t.ordinal(),l);
+	}
+
+	/**
+	 * @return the number of Provenances in the LexiconIndex
+	 */
+	public int size()
+	{
+		return weight.length;
+	}
+
+//Private Methods
+
+	//Adds a String to a dictionary, if needed, and returns its code
+	private static int code(HashMap<String,Integer> index, String s)
+	{
+		Integer c = index.get(s);
+		if(c == null)
+		{
+			c = index.size();
+			index.put(s, c);
+		}
+		return c;
+	}
+
+	//Returns a new Provenance with the values in the given position of the columns
+	private Provenance getProvenance(int k)
+	{
+		return new Provenance(TYPES[type[k]], sources[source[k]], languages[language[k]], weight[k]);
+	}
+
+	//Mixes the bits of the hash code of the name
+	private static int hash(String name)
+	{
+		int h = name.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	//Returns the code of a language, or -1 if there are no Provenances with it
+	private int languageId(String lang)
+	{
+		for(int l = 0; l < languages.length; l++)
+			if(languages[l].equals(lang))
+				return l;
+		return -1;
+	}
+
+	//Returns the number of names of an entity with a Provenance of the given type
+	private int nameCount(int id, byte t)
+	{
+		int r = row(id);
+		int count = 0;
+		if(r == -1)
+			return count;
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+		{
+			int p = entityPair[q];
+			for(int k = provStart[p]; k < provStart[p+1]; k++)
+			{
+				if(type[k] == t)
+				{
+					count++;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	//Returns the number of Provenances of the names of an entity with the
+	//given type and language code
+	private int nameCount(int id, byte t, int l)
+	{
+		int r = row(id);
+		int count = 0;
+		if(r == -1)
+			return count;
+		for(int q = entityStart[r]; q < entityStart[r+1]; q++)
+		{
+			int p = entityPair[q];
+			for(int k = provStart[p]; k < provStart[p+1]; k++)
+				if(type[k] == t && language[k] == l)
+					count++;
+		}
+		return count;
+	}
+
+	//Returns the id of a name, or -1 if it isn't in the LexiconIndex
+	private int nameId(String name)
+	{
+		if(name == null)
+			return -1;
+		int h = hash(name);
+		int mask = nameTable.length - 1;
+		for(int k = h & mask; nameTable[k] != 0; k = (k + 1) & mask)
+			if(nameHash[k] == h && names[nameTable[k]-1].equals(name))
+				return nameTable[k] - 1;
+		return -1;
+	}
+
+	//Returns the id of the pair of a name and entity, or -1 if it isn't in the LexiconIndex
+	private int pair(String name, int id)
+	{
+		int n = nameId(name);
+		if(n == -1)
+			return -1;
+		int p = Arrays.binarySearch(pairEntity, nameStart[n], nameStart[n+1], id);
+		if(p < 0)
+			return -1;
+		return p;
+	}
+
+	//Returns the position in the columns of the Provenance of a pair with
+	//the given language code, or -1 if there is none (as Provenances are
+	//equal when their languages are, a pair has at most one per language)
+	private int provenance(int p, int l)
+	{
+		for(int k = provStart[p]; k < provStart[p+1]; k++)
+			if(language[k] == l)
+				return k;
+		return -1;
+	}
+
+	//Returns the row of an entity, or -1 if it has no names
+	private int row(int id)
+	{
+		if(entities.length == 0)
+			return -1;
+		int i = id - entities[0];
+		if(i < 0 || i >= row.length)
+			return -1;
+		return row[i] - 1;
+	}
+
+	//Returns the Strings of a dictionary, by code
+	private static String[] toArray(HashMap<String,Integer> index)
+	{
+		String[] array = new String[index.size()];
+		for(String s : index.keySet())
+			array[index.get(s)] = s;
+		return array;
+	}
+
+	//Returns a sorted array with the elements of a set
+	private static int[] toSortedArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(Integer j : set)
+			array[i++] = j;
+		Arrays.sort(array);
+		return array;
+	}
+
+	//A read-only view of a range of sorted name ids (or of all names,
+	//if there are no ids), as a Set of names
+	private class NameSet extends AbstractSet<String>
+	{
+		private int[] ids;
+		private int from;
+		private int to;
+
+		private NameSet(int[] ids, int from, int to)
+		{
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			if(!(o instanceof String))
+				return false;
+			int n = nameId((String)o);
+			if(n == -1)
+				return false;
+			return ids == null || Arrays.binarySearch(ids, from, to, n) > -1;
+		}
+
+		@Override
+		public Iterator<String> iterator()
+		{
+			return new Iterator<String>()
+			{
+				private int i = from;
+
+				@Override
+				public boolean hasNext()
+				{
+					return i < to;
+				}
+
+				@Override
+				public String next()
+				{
+					if(i >= to)
+						throw new NoSuchElementException();
+					int n = ids == null ? i : ids[i];
+					i++;
+					return names[n];
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return to - from;
+		}
+	}
+}
@@ -0,0 +1,739 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Read-only view of the RelationshipMaps of a set of ontologies (typically    *
+* the source and target ontologies) as a single map of relationships. Queries *
+* about an entity are answered by the map of the ontology that contains it    *
+* (or by the maps of all ontologies that contain it, combined), so the maps   *
+* of the ontologies are neither copied nor changed, and can be shared.        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.settings.EntityType;
+import aml.util.IntArraySet;
+import aml.util.IntTable2Set;
+
+public class MergedRelationshipMap extends AbstractRelationshipMap
+{
+
+//Attributes
+
+	//The RelationshipMaps of the ontologies
+	private RelationshipMap[] maps;
+	//The ontologies that contain each entity, by entity index, as a bit
+	//mask of their positions (0 if no ontology contains the entity)
+	private byte[] owner;
+	//The maps of each combination of ontologies, by bit mask (all maps
+	//for an entity that no ontology contains)
+	private RelationshipMap[][] byOwner;
+	//Index of the siblings of each class, built on demand
+	private volatile SiblingIndex siblingIndex;
+	//The maximum number of ontologies in the view (the bits of the mask)
+	private static final int MAX_ONTOLOGIES = 8;
+
+//Constructors
+
+	/**
+	 * Creates a new MergedRelationshipMap of the given ontologies, indexing
+	 * the ontologies that contain each of their entities (entities added to
+	 * the ontologies later are answered by the maps of all ontologies)
+	 * @param ontologies: the ontologies whose RelationshipMaps to merge
+	 */
+	public MergedRelationshipMap(Ontology... ontologies)
+	{
+		if(ontologies.length == 0 || ontologies.length > MAX_ONTOLOGIES)
+			throw new IllegalArgumentException("A MergedRelationshipMap needs 1 to " +
+					MAX_ONTOLOGIES + " ontologies, not " + ontologies.length);
+		maps = new RelationshipMap[ontologies.length];
+		for(int i = 0; i < ontologies.length; i++)
+			maps[i] = ontologies[i].getRelationshipMap();
+		//Index the ontologies of each entity
+		int max = -1;
+		for(Ontology o : ontologies)
+			for(EntityType t : EntityType.values())
+				for(Integer e : o.getEntities(t))
+					max = Math.max(max, e);
+		owner = new byte[max + 1];
+		for(int i = 0; i < ontologies.length; i++)
+			for(EntityType t : EntityType.values())
+				for(Integer e : ontologies[i].getEntities(t))
+					owner[e] |= (byte)(1 << i);
+		//And list the maps of each combination of ontologies
+		byOwner = new RelationshipMap[1 << ontologies.length][];
+		byOwner[0] = maps;
+		for(int mask = 1; mask < byOwner.length; mask++)
+		{
+			byOwner[mask] = new RelationshipMap[Integer.bitCount(mask)];
+			int k = 0;
+			for(int i = 0; i < maps.length; i++)
+				if((mask & (1 << i)) != 0)
+					byOwner[mask][k++] = maps[i];
+		}
+	}
+
+//Public Methods
+
+	@Override
+	public boolean areDisjoint(int class1, int class2)
+	{
+		for(RelationshipMap m : parts(class1))
+			if(m.areDisjoint(class1, class2))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean areRelatedClasses(int child, int parent)
+	{
+		for(RelationshipMap m : parts(child))
+			if(m.areRelatedClasses(child, parent))
+				return true;
+		return false;
+	}
+
+	@Override
+	public void awaitClosure()
+	{
+		for(RelationshipMap m : maps)
+			m.awaitClosure();
+	}
+
+	@Override
+	public boolean belongsToClass(int indivId, int classId)
+	{
+		for(RelationshipMap m : parts(indivId))
+			if(m.belongsToClass(indivId, classId))
+				return true;
+		return false;
+	}
+
+	@Override
+	public int disjointCount()
+	{
+		int count = 0;
+		for(RelationshipMap m : maps)
+			count += m.disjointCount();
+		return count;
+	}
+
+	@Override
+	public Set<Integer> getAncestors(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getAncestors(classId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getAncestors(classId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getAncestors(int classId, int distance)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getAncestors(classId, distance);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getAncestors(classId, distance));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getAncestorsProperty(int classId, int prop)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getAncestorsProperty(classId, prop);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getAncestorsProperty(classId, prop));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getAncestors(int classId, int distance, int prop)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getAncestors(classId, distance, prop);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getAncestors(classId, distance, prop));
+		return s;
+	}
+
+	@Override
+	public int[] getAncestorArray(int classId, int distance)
+	{
+		RelationshipMap[] p = parts(classId);
+		int[] a = p[0].getAncestorArray(classId, distance);
+		for(int i = 1; i < p.length; i++)
+			a = union(a, p[i].getAncestorArray(classId, distance));
+		return a;
+	}
+
+	@Override
+	public Set<Integer> getChildren()
+	{
+		Set<Integer> s = maps[0].getChildren();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getChildren());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getClassIndividuals(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getClassIndividuals(classId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getClassIndividuals(classId));
+		return s;
+	}
+
+	@Override
+	public Set<String> getDataRanges(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<String> s = p[0].getDataRanges(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDataRanges(propId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getDescendants(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getDescendants(classId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDescendants(classId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getDescendants(int classId, int distance)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getDescendants(classId, distance);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDescendants(classId, distance));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getDescendantsProperty(int classId, int prop)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getDescendantsProperty(classId, prop);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDescendantsProperty(classId, prop));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getDescendants(int classId, int distance, int prop)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getDescendants(classId, distance, prop);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDescendants(classId, distance, prop));
+		return s;
+	}
+
+	@Override
+	public int[] getDescendantArray(int classId, int distance)
+	{
+		RelationshipMap[] p = parts(classId);
+		int[] a = p[0].getDescendantArray(classId, distance);
+		for(int i = 1; i < p.length; i++)
+			a = union(a, p[i].getDescendantArray(classId, distance));
+		return a;
+	}
+
+	@Override
+	public Set<Integer> getDisjoint()
+	{
+		Set<Integer> s = maps[0].getDisjoint();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getDisjoint());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getDisjoint(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		Set<Integer> s = p[0].getDisjoint(classId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDisjoint(classId));
+		return s;
+	}
+
+	@Override
+	public int getDistance(int child, int parent)
+	{
+		int distance = -1;
+		for(RelationshipMap m : parts(child))
+		{
+			int d = m.getDistance(child, parent);
+			if(d > -1 && (distance == -1 || d < distance))
+				distance = d;
+		}
+		return distance;
+	}
+
+	@Override
+	public Set<Integer> getDomains(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<Integer> s = p[0].getDomains(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getDomains(propId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getHighLevelAncestors(int classId)
+	{
+		return new IntArraySet(getHighLevelAncestorArray(classId));
+	}
+
+	@Override
+	public int[] getHighLevelAncestorArray(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		int[] a = p[0].getHighLevelAncestorArray(classId);
+		for(int i = 1; i < p.length; i++)
+			a = union(a, p[i].getHighLevelAncestorArray(classId));
+		return a;
+	}
+
+	@Override
+	public Set<Integer> getHighLevelClasses()
+	{
+		Set<Integer> s = maps[0].getHighLevelClasses();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getHighLevelClasses());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualActiveRelations(int indivId)
+	{
+		RelationshipMap[] p = parts(indivId);
+		Set<Integer> s = p[0].getIndividualActiveRelations(indivId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getIndividualActiveRelations(indivId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualClasses(int indivId)
+	{
+		RelationshipMap[] p = parts(indivId);
+		Set<Integer> s = p[0].getIndividualClasses(indivId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getIndividualClasses(indivId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualPassiveRelations(int indivId)
+	{
+		RelationshipMap[] p = parts(indivId);
+		Set<Integer> s = p[0].getIndividualPassiveRelations(indivId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getIndividualPassiveRelations(indivId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualProperties(int sourceInd, int targetInd)
+	{
+		RelationshipMap[] p = parts(sourceInd);
+		Set<Integer> s = p[0].getIndividualProperties(sourceInd, targetInd);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getIndividualProperties(sourceInd, targetInd));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualsWithActiveRelations()
+	{
+		Set<Integer> s = maps[0].getIndividualsWithActiveRelations();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getIndividualsWithActiveRelations());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getIndividualsWithPassiveRelations()
+	{
+		Set<Integer> s = maps[0].getIndividualsWithPassiveRelations();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getIndividualsWithPassiveRelations());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getInstancedClasses()
+	{
+		Set<Integer> s = maps[0].getInstancedClasses();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getInstancedClasses());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getInverseProperties(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<Integer> s = p[0].getInverseProperties(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getInverseProperties(propId));
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getObjectRanges(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<Integer> s = p[0].getObjectRanges(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getObjectRanges(propId));
+		return s;
+	}
+
+	/**
+	 * @return the RelationshipMaps of the ontologies in this view
+	 */
+	public RelationshipMap[] getParts()
+	{
+		return maps.clone();
+	}
+
+	@Override
+	public Set<Integer> getParents()
+	{
+		Set<Integer> s = maps[0].getParents();
+		for(int i = 1; i < maps.length; i++)
+			s = union(s, maps[i].getParents());
+		return s;
+	}
+
+	@Override
+	public Set<Integer> getParentIndividuals(int indivId, int prop)
+	{
+		RelationshipMap[] p = parts(indivId);
+		Set<Integer> s = p[0].getParentIndividuals(indivId, prop);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getParentIndividuals(indivId, prop));
+		return s;
+	}
+
+	@Override
+	public Vector<Relationship> getRelationships(int child, int parent)
+	{
+		Vector<Relationship> rels = null;
+		for(RelationshipMap m : parts(child))
+		{
+			if(!m.areRelatedClasses(child, parent))
+				continue;
+			if(rels == null)
+				rels = m.getRelationships(child, parent);
+			else
+			{
+				rels = new Vector<Relationship>(rels);
+				rels.addAll(m.getRelationships(child, parent));
+			}
+		}
+		return rels;
+	}
+
+	/**
+	 * @return the SiblingIndex of the merged relations, building it if needed
+	 * (later changes to the maps of the ontologies are not reflected in it)
+	 */
+	@Override
+	public SiblingIndex getSiblingIndex()
+	{
+		awaitClosure();
+		SiblingIndex index = siblingIndex;
+		if(index != null)
+			return index;
+		return buildSiblingIndex();
+	}
+
+	@Override
+	public int[] getSubClassArray(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		int[] a = p[0].getSubClassArray(classId);
+		for(int i = 1; i < p.length; i++)
+			a = union(a, p[i].getSubClassArray(classId));
+		return a;
+	}
+
+	@Override
+	public Set<Integer> getSubProperties(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<Integer> s = p[0].getSubProperties(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getSubProperties(propId));
+		return s;
+	}
+
+	@Override
+	public int[] getSuperClassArray(int classId)
+	{
+		RelationshipMap[] p = parts(classId);
+		int[] a = p[0].getSuperClassArray(classId);
+		for(int i = 1; i < p.length; i++)
+			a = union(a, p[i].getSuperClassArray(classId));
+		return a;
+	}
+
+	@Override
+	public Set<Integer> getSuperProperties(int propId)
+	{
+		RelationshipMap[] p = parts(propId);
+		Set<Integer> s = p[0].getSuperProperties(propId);
+		for(int i = 1; i < p.length; i++)
+			s = union(s, p[i].getSuperProperties(propId));
+		return s;
+	}
+
+	@Override
+	public IntTable2Set getTransitiveProperties()
+	{
+		IntTable2Set transitive = new IntTable2Set();
+		for(RelationshipMap m : maps)
+		{
+			IntTable2Set t = m.getTransitiveProperties();
+			for(Integer p : t.keySet())
+				transitive.addAll(p, t.get(p));
+		}
+		return transitive;
+	}
+
+	@Override
+	public boolean hasDisjoint(int classId)
+	{
+		for(RelationshipMap m : parts(classId))
+			if(m.hasDisjoint(classId))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean hasDisjointTransitive(int classId)
+	{
+		for(RelationshipMap m : parts(classId))
+			if(m.hasDisjointTransitive(classId))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean hasDisjointClause(int one, int two)
+	{
+		for(RelationshipMap m : parts(one))
+			if(m.hasDisjointClause(one, two))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean hasProperty(int child, int parent, int property)
+	{
+		for(RelationshipMap m : parts(child))
+			if(m.areRelatedClasses(child, parent) && m.hasProperty(child, parent, property))
+				return true;
+		return false;
+	}
+
+	@Override
+	public int individualRelationshipCount()
+	{
+		int count = 0;
+		for(RelationshipMap m : maps)
+			count += m.individualRelationshipCount();
+		return count;
+	}
+
+	@Override
+	public int instanceCount()
+	{
+		int count = 0;
+		for(RelationshipMap m : maps)
+			count += m.instanceCount();
+		return count;
+	}
+
+	@Override
+	public boolean isClosed()
+	{
+		for(RelationshipMap m : maps)
+			if(!m.isClosed())
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean isFunctional(int prop)
+	{
+		for(RelationshipMap m : parts(prop))
+			if(m.isFunctional(prop))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean isSubclass(int child, int parent)
+	{
+		for(RelationshipMap m : parts(child))
+			if(m.isSubclass(child, parent))
+				return true;
+		return false;
+	}
+
+	@Override
+	public boolean isSymmetric(int prop)
+	{
+		for(RelationshipMap m : parts(prop))
+			if(m.isSymmetric(prop))
+				return true;
+		return false;
+	}
+
+	@Override
+	public int relationshipCount()
+	{
+		int count = 0;
+		for(RelationshipMap m : maps)
+			count += m.relationshipCount();
+		return count;
+	}
+
+	@Override
+	public void setClosureThreads(int threads)
+	{
+		for(RelationshipMap m : maps)
+			m.setClosureThreads(threads);
+	}
+
+	@Override
+	public boolean shareClass(int ind1Id, int ind2Id)
+	{
+		for(RelationshipMap m : parts(ind1Id))
+			if(m.shareClass(ind1Id, ind2Id))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Runs the transitive closure of the maps of the ontologies that are not
+	 * closed yet, each in its own thread, and waits for them to finish
+	 */
+	@Override
+	public void transitiveClosure()
+	{
+		transitiveClosureInBackground();
+		awaitClosure();
+	}
+
+	/**
+	 * Starts the transitive closure of the maps of the ontologies that are
+	 * not closed yet, each in its own background thread
+	 */
+	@Override
+	public void transitiveClosureInBackground()
+	{
+		for(RelationshipMap m : maps)
+			if(!m.isClosed())
+				m.transitiveClosureInBackground();
+	}
+
+	@Override
+	public boolean violatesDisjoint(int child, int parent)
+	{
+		for(RelationshipMap m : parts(child))
+			if(m.violatesDisjoint(child, parent))
+				return true;
+		return false;
+	}
+
+//Private Methods
+
+	//Builds the SiblingIndex
+	private synchronized SiblingIndex buildSiblingIndex()
+	{
+		if(siblingIndex == null)
+			siblingIndex = new SiblingIndex(this);
+		return siblingIndex;
+	}
+	
+	//Returns the maps of the ontologies that contain the entity, or all
+	//maps if no ontology contains it
+	private RelationshipMap[] parts(int id)
+	{
+		if(id < 0 || id >= owner.length)
+			return maps;
+		return byOwner[owner[id] & 0xFF];
+	}
+
+	//Returns the union of two sets (one of them if the other is empty)
+	private <T> Set<T> union(Set<T> a, Set<T> b)
+	{
+		if(b.isEmpty())
+			return a;
+		if(a.isEmpty())
+			return b;
+		HashSet<T> union = new HashSet<T>(a);
+		union.addAll(b);
+		return union;
+	}
+
+	//Returns the union of two sorted arrays of distinct ints
+	private int[] union(int[] a, int[] b)
+	{
+		if(b.length == 0)
+			return a;
+		if(a.length == 0)
+			return b;
+		int[] union = new int[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+		while(i < a.length && j < b.length)
+		{
+			if(a[i] < b[j])
+				union[k++] = a[i++];
+			else if(a[i] > b[j])
+				union[k++] = b[j++];
+			else
+			{
+				union[k++] = a[i++];
+				j++;
+			}
+		}
+		while(i < a.length)
+			union[k++] = a[i++];
+		while(j < b.length)
+			union[k++] = b[j++];
+		if(k == union.length)
+			return union;
+		int[] trimmed = new int[k];
+		System.arraycopy(union, 0, trimmed, 0, k);
+		return trimmed;
+	}
+}
@@ -97,6 +97,8 @@ public class Ontology
 	private WordLexicon wLex;
 	//Its reference map
 	private ReferenceMap refs;
+	//Its relationship map
+	private RelationshipMap rm;
 	//The map of class names (String) -> indexes (Integer) in the ontology
 	//which is necessary for the cross-reference matching
 	private HashMap<String,Integer> classNames;
@@ -108,7 +110,6 @@ public class Ontology
 	private boolean useReasoner;
 	private boolean isSKOS;
 	private URIMap uris;
-	private RelationshipMap rm;
 	
 	//Auxiliary data structures to capture semantic disjointness
 	private Table2Map<Integer,Integer,Integer> maxCard, minCard, card;
@@ -139,7 +140,7 @@ public class Ontology
 		aml = AML.getInstance();
 		useReasoner = aml.useReasoner();
 		uris = aml.getURIMap();
-		rm = aml.getRelationshipMap();
+		rm = new RelationshipMap(this);
 	}
 	
 	/**
@@ -314,6 +315,14 @@ public class Ontology
 		return refs;
 	}
 
+	/**
+	 * @return the Ontology's RelationshipMap
+	 */
+	public RelationshipMap getRelationshipMap()
+	{
+		return rm;
+	}
+
 	/**
 	 * @return the Ontology's URI
 	 */
@@ -20,18 +20,23 @@
 ******************************************************************************/
 package aml.ontology;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import aml.AML;
+import aml.util.IntArraySet;
+import aml.util.IntTable2Set;
 import aml.util.Table2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
 
 
-public class RelationshipMap
+public class RelationshipMap extends AbstractRelationshipMap
 {
 	
 //Attributes
@@ -40,14 +45,32 @@ public class RelationshipMap
 	//Hierarchical relations and property restrictions (with transitive closure)
 	private Table3List<Integer,Integer,Relationship> ancestorClasses; //Class -> Ancestor -> Relationship
 	private Table3List<Integer,Integer,Relationship> descendantClasses;	//Class -> Descendant -> Relationship
+	//Frozen copy of the hierarchical relations, which replaces the tables above
+	//after the transitive closure, until the next change to the relations
+	private ClassHierarchy hierarchy;
 	//Disjointness (direct only, no transitive closure)
-	private Table2Set<Integer,Integer> disjointMap; //Class -> Disjoint Classes
-	//List of high level classes
-	private HashSet<Integer> highLevelClasses;
+	private IntTable2Set disjointMap; //Class -> Disjoint Classes
+	//Reachability index of the disjoint clauses, built on demand once the
+	//hierarchical relations are frozen, until the next change to them
+	private DisjointIndex disjointIndex;
+	//List of high level classes and the sorted high level ancestors of
+	//each class, by class index (computed together, on demand, until the
+	//next change to the hierarchical relations)
+	private volatile HashSet<Integer> highLevelClasses;
+	private int[][] highLevelAncestors;
+	private static final int[] NO_CLASSES = new int[0];
+	//Index of the siblings of each class, built on demand, until the next
+	//change to the hierarchical relations
+	private volatile SiblingIndex siblingIndex;
+	//The ontology whose relations are in the map (null if shared by the
+	//source and target ontologies)
+	private Ontology owner;
+	//Whether the hierarchical relations are transitively closed
+	private volatile boolean closed;
 	
 	//Relationships between individuals and classes
-	private Table2Set<Integer,Integer> instanceOfMap; //Individual -> Class 
-	private Table2Set<Integer,Integer> hasInstanceMap; //Class -> Individual
+	private IntTable2Set instanceOfMap; //Individual -> Class 
+	private IntTable2Set hasInstanceMap; //Class -> Individual
 
 	//Relationships between individuals
 	private Table3Set<Integer,Integer,Integer> activeRelation; //Source Individual -> Target Individual -> Property
@@ -55,21 +78,39 @@ public class RelationshipMap
 
 	//Relationships between properties
 	//Hierarchical and inverse relations
-	private Table2Set<Integer,Integer> subProp; //Property -> SubProperty
-	private Table2Set<Integer,Integer> superProp; //Property -> SuperProperty
-	private Table2Set<Integer,Integer> inverseProp; //Property -> InverseProperty
+	private IntTable2Set subProp; //Property -> SubProperty
+	private IntTable2Set superProp; //Property -> SuperProperty
+	private IntTable2Set inverseProp; //Property -> InverseProperty
 	//Transitivity relations (transitive properties will be mapped to themselves)
-	private Table2Set<Integer,Integer> transitiveOver; //Property1 -> Property2 over which 1 is transitive
+	private IntTable2Set transitiveOver; //Property1 -> Property2 over which 1 is transitive
 	//List of symmetric properties
 	private HashSet<Integer> symmetric;
 	//List of functional properties
 	private HashSet<Integer> functional;
 	
 	//Property domains and ranges (property to class or to String)
-	private Table2Set<Integer,Integer> domain; //Property -> Class
-	private Table2Set<Integer,Integer> objectRange; //Property -> Class
+	private IntTable2Set domain; //Property -> Class
+	private IntTable2Set objectRange; //Property -> Class
 	private Table2Set<Integer,String> dataRange; //Property -> String
 	
+	//The number of threads of the transitive closure
+	private int closureThreads;
+	//Whether to log the time and new relationships of each round of the
+	//transitive closure
+	private boolean closureLog = true;
+	//The thread running the transitive closure in the background (if any)
+	//and the pool of the transitive closure while it runs
+	private volatile Thread closure;
+	private volatile ForkJoinPool closurePool;
+	//The error that stopped the background transitive closure (if any),
+	//which leaves the relations only partly closed
+	private volatile Throwable closureFailure;
+	//The number of classes whose relationships are inferred together
+	//in each block of a parallel round of the transitive closure
+	private static final int CLOSURE_BLOCK = 4096;
+	//The number of classes inferred by a single task of a block
+	private static final int CLOSURE_TASK = 64;
+	
 //Constructors
 
 	/**
@@ -77,22 +118,33 @@ public class RelationshipMap
 	 */
 	public RelationshipMap()
 	{
+		this(null);
+	}
+	
+	/**
+	 * Creates a new empty RelationshipMap for the relations of an ontology
+	 * @param owner: the ontology whose relations will be in the map
+	 */
+	public RelationshipMap(Ontology owner)
+	{
+		this.owner = owner;
 		descendantClasses = new Table3List<Integer,Integer,Relationship>();
 		ancestorClasses = new Table3List<Integer,Integer,Relationship>();
-		disjointMap = new Table2Set<Integer,Integer>();
-		instanceOfMap = new Table2Set<Integer,Integer>();
-		hasInstanceMap = new Table2Set<Integer,Integer>();
+		disjointMap = new IntTable2Set();
+		instanceOfMap = new IntTable2Set();
+		hasInstanceMap = new IntTable2Set();
 		activeRelation = new Table3Set<Integer,Integer,Integer>();		
 		passiveRelation = new Table3Set<Integer,Integer,Integer>();		
-		subProp = new Table2Set<Integer,Integer>();
-		superProp = new Table2Set<Integer,Integer>();
-		inverseProp = new Table2Set<Integer,Integer>();
-		transitiveOver = new Table2Set<Integer,Integer>();
+		subProp = new IntTable2Set();
+		superProp = new IntTable2Set();
+		inverseProp = new IntTable2Set();
+		transitiveOver = new IntTable2Set();
 		symmetric = new HashSet<Integer>();
 		functional = new HashSet<Integer>();
-		domain = new Table2Set<Integer,Integer>();
-		objectRange = new Table2Set<Integer,Integer>();
+		domain = new IntTable2Set();
+		objectRange = new IntTable2Set();
 		dataRange = new Table2Set<Integer,String>();
+		closureThreads = Runtime.getRuntime().availableProcessors();
 	}
 	
 //Public Methods
@@ -120,6 +172,8 @@ public class RelationshipMap
 	 */
 	public void addClassRelationship(int child, int parent, int distance, int prop, boolean rest)
 	{
+		awaitClosure();
+		thaw();
 		//Create the relationship
 		Relationship r = new Relationship(distance,prop,rest);
 		//Then update the MultiMaps
@@ -149,6 +203,7 @@ public class RelationshipMap
 			//The disjointMap keeps disjoint clauses in both directions
 			disjointMap.add(class1, class2);
 			disjointMap.add(class2, class1);
+			disjointIndex = null;
 		}
 	}
 	
@@ -293,8 +348,12 @@ public class RelationshipMap
 	 * @param class2: the second class to check for disjointness
 	 * @return whether one and two are disjoint considering transitivity
 	 */
+	@Override
 	public boolean areDisjoint(int class1, int class2)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return getDisjointIndex().areDisjoint(class1, class2);
 		//Get the transitive disjoint clauses involving class one
 		Set<Integer> disj = getDisjointTransitive(class1);
 		if(disj.size() > 0)
@@ -318,11 +377,54 @@ public class RelationshipMap
 	 * @param parent: the index of the parent class
 	 * @return whether the RelationshipMap contains a relationship between child and parent
 	 */
+	@Override
 	public boolean areRelatedClasses(int child, int parent)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().contains(parent,child);
 		return descendantClasses.contains(parent,child);
 	}
 	
+	/**
+	 * Waits for the transitive closure running in the background, if any,
+	 * unless called from the closure itself (i.e., its thread or its pool)
+	 * An interrupt doesn't stop the wait, as the closure is still changing
+	 * the relations, but the interrupt status is restored afterwards
+	 * @throws IllegalStateException if the background closure failed (or the
+	 * Error that made it fail), as the relations are only partly closed
+	 */
+	@Override
+	public void awaitClosure()
+	{
+		Thread t = closure;
+		if(t != null && t != Thread.currentThread())
+		{
+			ForkJoinPool pool = closurePool;
+			if(pool != null && ForkJoinTask.getPool() == pool)
+				return;
+			boolean interrupted = false;
+			while(t.isAlive())
+			{
+				try
+				{
+					t.join();
+				}
+				catch(InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+		Throwable failure = closureFailure;
+		if(failure instanceof Error)
+			throw (Error)failure;
+		if(failure != null)
+			throw new IllegalStateException("The background transitive closure failed", failure);
+	}
+	
 	/**
 	 * Checks whether an individual belongs to a class
 	 * @param indivId: the index of the individual to check
@@ -330,6 +432,7 @@ public class RelationshipMap
 	 * @return whether indivId is an instance of classId or
 	 * of one of its subclasses
 	 */
+	@Override
 	public boolean belongsToClass(int indivId, int classId)
 	{
 		if(instanceOfMap.contains(indivId, classId))
@@ -343,6 +446,7 @@ public class RelationshipMap
 	/**
 	 * @return the number of disjoint clauses
 	 */
+	@Override
 	public int disjointCount()
 	{
 		//The size is divided by 2 since the disjoint
@@ -350,33 +454,16 @@ public class RelationshipMap
 		return disjointMap.size()/2;
 	}
 	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of all siblings of the given class
-	 */
-	public Set<Integer> getAllSiblings(int classId)
-	{
-		Set<Integer> parents = getAncestors(classId,1);
-		HashSet<Integer> siblings = new HashSet<Integer>();
-		for(Integer i : parents)
-		{
-			for(Relationship r : getRelationships(classId,i))
-			{
-				Set<Integer> children = getDescendants(i,1,r.getProperty());
-				for(Integer j : children)
-					if(j != classId)
-						siblings.add(j);
-			}
-		}
-		return siblings;
-	}
-	
 	/**
 	 * @param classId: the id of the class to search in the map
 	 * @return the list of ancestors of the given class
 	 */
+	@Override
 	public Set<Integer> getAncestors(int classId)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().keySet(classId);
 		if(ancestorClasses.contains(classId))
 			return ancestorClasses.keySet(classId);
 		return new HashSet<Integer>();
@@ -387,8 +474,12 @@ public class RelationshipMap
 	 * @param distance: the distance between the class and its ancestors
 	 * @return the list of ancestors at the given distance from the input class
 	 */
+	@Override
 	public Set<Integer> getAncestors(int classId, int distance)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return toSet(hierarchy.ancestors().atDistance(classId, distance, false));
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -404,8 +495,12 @@ public class RelationshipMap
 	 * @param prop: the relationship property between the class and its ancestors
 	 * @return the list of ancestors at the given distance from the input class
 	 */
+	@Override
 	public Set<Integer> getAncestorsProperty(int classId, int prop)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().select(classId, -1, prop);
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -423,8 +518,16 @@ public class RelationshipMap
 	 * @return the list of ancestors of the input class that are at the given
 	 * distance and with the given property
 	 */
+	@Override
 	public Set<Integer> getAncestors(int classId, int distance, int prop)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+		{
+			if(prop == -1)
+				return toSet(hierarchy.ancestors().atDistance(classId, distance, true));
+			return hierarchy.ancestors().select(classId, distance, prop);
+		}
 		HashSet<Integer> asc = new HashSet<Integer>();
 		if(!ancestorClasses.contains(classId))
 			return asc;
@@ -435,29 +538,52 @@ public class RelationshipMap
 		return asc;
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its ancestors
+	 * @return the ancestors at the given distance from the input class, sorted
+	 * by id (the array may be shared by the map, so it must not be changed)
+	 */
+	@Override
+	public int[] getAncestorArray(int classId, int distance)
+	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().atDistance(classId, distance, false);
+		return toArray(getAncestors(classId,distance));
+	}
+	
 	/**
 	 * @return the set of classes with ancestors in the map
 	 */
+	@Override
 	public Set<Integer> getChildren()
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().keySet();
 		if(ancestorClasses != null)
 			return ancestorClasses.keySet();
 		return new HashSet<Integer>();
 	}
 	
 	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of direct children of the given class
+	 * @return the frozen copy of the hierarchical relations, or null if the
+	 * map isn't transitively closed (or its relations couldn't be frozen)
 	 */
-	public Set<Integer> getChildren(int classId)
+	public ClassHierarchy getClassHierarchy()
 	{
-		return getDescendants(classId,1);
+		awaitClosure();
+		if(!closed)
+			return null;
+		return hierarchy;
 	}
-
+	
 	/**
 	 * @param classId: the id of the class to search in the map
 	 * @return the list of individuals that instantiate the given class
 	 */
+	@Override
 	public Set<Integer> getClassIndividuals(int classId)
 	{
 		if(hasInstanceMap.contains(classId))
@@ -465,52 +591,11 @@ public class RelationshipMap
 		return new HashSet<Integer>();
 	}
 	
-	/**
-	 * @param classes: the set the class to search in the map
-	 * @return the list of direct subclasses shared by the set of classes
-	 */
-	public Set<Integer> getCommonSubClasses(Set<Integer> classes)
-	{
-		if(classes == null || classes.size() == 0)
-			return null;
-		Iterator<Integer> it = classes.iterator();
-		Vector<Integer> subclasses = new Vector<Integer>(getSubClasses(it.next(),false));
-		while(it.hasNext())
-		{
-			HashSet<Integer> s = new HashSet<Integer>(getSubClasses(it.next(),false));
-			for(int i = 0; i < subclasses.size(); i++)
-			{
-				if(!s.contains(subclasses.get(i)))
-				{
-					subclasses.remove(i);
-					i--;
-				}
-			}
-		}
-		for(int i = 0; i < subclasses.size()-1; i++)
-		{
-			for(int j = i+1; j < subclasses.size(); j++)
-			{
-				if(isSubclass(subclasses.get(i),subclasses.get(j)))
-				{
-					subclasses.remove(i);
-					i--;
-					j--;
-				}
-				if(isSubclass(subclasses.get(j),subclasses.get(i)))
-				{
-					subclasses.remove(j);
-					j--;
-				}
-			}
-		}
-		return new HashSet<Integer>(subclasses);
-	}
-	
 	/**
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of data types in the range of the input property
 	 */
+	@Override
 	public Set<String> getDataRanges(int propId)
 	{
 		if(dataRange.contains(propId))
@@ -522,8 +607,12 @@ public class RelationshipMap
 	 * @param classId: the id of the class to search in the map
 	 * @return the list of descendants of the input class
 	 */
+	@Override
 	public Set<Integer> getDescendants(int classId)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().keySet(classId);
 		if(descendantClasses.contains(classId))
 			return descendantClasses.keySet(classId);
 		return new HashSet<Integer>();
@@ -534,8 +623,12 @@ public class RelationshipMap
 	 * @param distance: the distance between the class and its ancestors
 	 * @return the list of descendants at the given distance from the input class
 	 */
+	@Override
 	public Set<Integer> getDescendants(int classId, int distance)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return toSet(hierarchy.descendants().atDistance(classId, distance, false));
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -551,8 +644,12 @@ public class RelationshipMap
 	 * @param prop: the relationship property between the class and its ancestors
 	 * @return the list of descendants at the given distance from the input class
 	 */
+	@Override
 	public Set<Integer> getDescendantsProperty(int classId, int prop)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().select(classId, -1, prop);
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -570,8 +667,16 @@ public class RelationshipMap
 	 * @return the list of descendants of the input class at the given distance
 	 * and with the given property
 	 */
+	@Override
 	public Set<Integer> getDescendants(int classId, int distance, int prop)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+		{
+			if(prop == -1)
+				return toSet(hierarchy.descendants().atDistance(classId, distance, true));
+			return hierarchy.descendants().select(classId, distance, prop);
+		}
 		HashSet<Integer> desc = new HashSet<Integer>();
 		if(!descendantClasses.contains(classId))
 			return desc;
@@ -582,9 +687,25 @@ public class RelationshipMap
 		return desc;
 	}
 	
+	/**
+	 * @param classId: the id of the class to search in the map
+	 * @param distance: the distance between the class and its descendants
+	 * @return the descendants at the given distance from the input class, sorted
+	 * by id (the array may be shared by the map, so it must not be changed)
+	 */
+	@Override
+	public int[] getDescendantArray(int classId, int distance)
+	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().atDistance(classId, distance, false);
+		return toArray(getDescendants(classId,distance));
+	}
+	
 	/**
 	 * @return the set of classes that have disjoint clauses
 	 */
+	@Override
 	public Set<Integer> getDisjoint()
 	{
 		return disjointMap.keySet();
@@ -594,6 +715,7 @@ public class RelationshipMap
 	 * @param classId: the id of the class to search in the map
 	 * @return the list of classes disjoint with the given class
 	 */
+	@Override
 	public Set<Integer> getDisjoint(int classId)
 	{
 		if(disjointMap.contains(classId))
@@ -601,34 +723,20 @@ public class RelationshipMap
 		return new HashSet<Integer>();
 	}
 	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of classes disjoint with the given class
-	 * or any of its 'is_a' ancestors
-	 */
-	public Set<Integer> getDisjointTransitive(int classId)
-	{
-		//Get the disjoint clauses for the class
-		Set<Integer> disj = getDisjoint(classId);
-		//Then get all superclasses of the class
-		Set<Integer> ancestors = getSuperClasses(classId,false);
-		//For each superclass
-		for(Integer i : ancestors)
-			//Add its disjoint clauses to the list
-			disj.addAll(getDisjoint(i));
-		return disj;
-	}
-	
 	/**
 	 * @param child: the index of the child class
 	 * @param parent: the index of the parent class
 	 * @return the minimal distance between the child and parent,
 	 * or 0 if child==parent, or -1 if they aren't related
 	 */
+	@Override
 	public int getDistance(int child, int parent)
 	{
+		awaitClosure();
 		if(child == parent)
 			return 0;
+		if(hierarchy != null)
+			return hierarchy.ancestors().getDistance(child, parent);
 		if(!ancestorClasses.contains(child, parent))
 			return -1;
 		Vector<Relationship> rels = ancestorClasses.get(child,parent);
@@ -643,6 +751,7 @@ public class RelationshipMap
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of class indexes in the domain of the input property
 	 */
+	@Override
 	public Set<Integer> getDomains(int propId)
 	{
 		if(domain.contains(propId))
@@ -652,91 +761,48 @@ public class RelationshipMap
 	
 	/**
 	 * @param classId: the id of the class to search in the map
-	 * @return the list of equivalences of the given class
-	 */
-	public Set<Integer> getEquivalences(int classId)
-	{
-		return getDescendants(classId, 0);
-	}
-	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of classes equivalent to the given class
+	 * @return the (read-only) set of high level ancestors of the given class
 	 */
-	public Set<Integer> getEquivalentClasses(int classId)
+	@Override
+	public Set<Integer> getHighLevelAncestors(int classId)
 	{
-		return getDescendants(classId,0,-1);
+		return new IntArraySet(getHighLevelAncestorArray(classId));
 	}
 	
 	/**
 	 * @param classId: the id of the class to search in the map
-	 * @return the list of high level ancestors of the given class
+	 * @return the sorted array of high level ancestors of the given class
+	 * (shared, so it must not be modified)
 	 */
-	public Set<Integer> getHighLevelAncestors(int classId)
+	@Override
+	public int[] getHighLevelAncestorArray(int classId)
 	{
-		if(highLevelClasses == null)
-			getHighLevelClasses();
-		Set<Integer> ancestors = getAncestors(classId);
-		HashSet<Integer> highAncs = new HashSet<Integer>();
-		for(Integer i : ancestors)
-			if(highLevelClasses.contains(i))
-				highAncs.add(i);
-		return highAncs;
+		getHighLevelClasses();
+		int[][] ancestors = highLevelAncestors;
+		if(classId < 0 || classId >= ancestors.length || ancestors[classId] == null)
+			return NO_CLASSES;
+		return ancestors[classId];
 	}
 	
 	/**
 	 * @return the set of high level classes in the ontology
 	 */
+	@Override
 	public Set<Integer> getHighLevelClasses()
 	{
-		if(highLevelClasses != null)
-			return highLevelClasses;
-		
-		highLevelClasses = new HashSet<Integer>();
-		
-		AML aml = AML.getInstance();
-		
-		//First get the very top classes
-		HashSet<Integer> sourceTop = new HashSet<Integer>();
-		HashSet<Integer> targetTop = new HashSet<Integer>();
-		Set<Integer> ancestors = descendantClasses.keySet();
-		//Which are classes that have children but not parents
-		//NOTE: This may not work out well if the ontologies are not is_a complete
-		for(Integer a : ancestors)
-		{
-			if(getParents(a).size() == 0 && getChildren(a).size() > 0)
-			{
-				if(aml.getSource().contains(a))
-					sourceTop.add(a);
-				if(aml.getTarget().contains(a))
-					targetTop.add(a);
-			}
-		}
-		//Now we go down the ontologies until we reach a significant branching
-		while(sourceTop.size() < 3)
-		{
-			HashSet<Integer> newTop = new HashSet<Integer>();
-			for(Integer a : sourceTop)
-				newTop.addAll(getChildren(a));
-			sourceTop = newTop;
-		}
-		while(targetTop.size() < 3)
-		{
-			HashSet<Integer> newTop = new HashSet<Integer>();
-			for(Integer a : targetTop)
-				newTop.addAll(getChildren(a));
-			targetTop = newTop;
-		}
-		highLevelClasses.addAll(sourceTop);
-		highLevelClasses.addAll(targetTop);
-		
-		return highLevelClasses;
+		awaitClosure();
+		HashSet<Integer> high = highLevelClasses;
+		if(high != null)
+			return high;
+		return buildHighLevelClasses();
 	}
 	
+	
 	/**
 	 * @param indivId: the id of the individual to search in the map
 	 * @return the list of individuals to which the given individual is actively related
 	 */
+	@Override
 	public Set<Integer> getIndividualActiveRelations(int indivId)
 	{
 		if(activeRelation.contains(indivId))
@@ -748,6 +814,7 @@ public class RelationshipMap
 	 * @param indivId: the id of the individual to search in the map
 	 * @return the list of classes instanced by the given individual
 	 */
+	@Override
 	public Set<Integer> getIndividualClasses(int indivId)
 	{
 		if(instanceOfMap.contains(indivId))
@@ -759,6 +826,7 @@ public class RelationshipMap
 	 * @param indivId: the id of the individual to search in the map
 	 * @return the list of individuals that are actively related with of the given individual
 	 */
+	@Override
 	public Set<Integer> getIndividualPassiveRelations(int indivId)
 	{
 		if(passiveRelation.contains(indivId))
@@ -771,6 +839,7 @@ public class RelationshipMap
 	 * @param targetInd: the id of the target individual in the relation
 	 * @return the list of object properties actively relating sourceInd to targetInd
 	 */
+	@Override
 	public Set<Integer> getIndividualProperties(int sourceInd, int targetInd)
 	{
 		if(activeRelation.contains(sourceInd,targetInd))
@@ -781,6 +850,7 @@ public class RelationshipMap
 	/**
 	 * @return the list of individuals with active relations
 	 */
+	@Override
 	public Set<Integer> getIndividualsWithActiveRelations()
 	{
 		return activeRelation.keySet();
@@ -789,6 +859,7 @@ public class RelationshipMap
 	/**
 	 * @return the list of individuals with active relations
 	 */
+	@Override
 	public Set<Integer> getIndividualsWithPassiveRelations()
 	{
 		return passiveRelation.keySet();
@@ -799,6 +870,7 @@ public class RelationshipMap
 	 * @param indivId: the id of the individual to search in the map
 	 * @return the list of classes instanced by the given individual
 	 */
+	@Override
 	public Set<Integer> getInstancedClasses()
 	{
 		return hasInstanceMap.keySet();
@@ -808,6 +880,7 @@ public class RelationshipMap
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of inverse properties of the input property
 	 */
+	@Override
 	public Set<Integer> getInverseProperties(int propId)
 	{
 		if(inverseProp.contains(propId))
@@ -820,6 +893,7 @@ public class RelationshipMap
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of classes in the range of the input property
 	 */
+	@Override
 	public Set<Integer> getObjectRanges(int propId)
 	{
 		if(objectRange.contains(propId))
@@ -830,27 +904,23 @@ public class RelationshipMap
 	/**
 	 * @return the set of classes with ancestors in the map
 	 */
+	@Override
 	public Set<Integer> getParents()
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().keySet();
 		if(descendantClasses != null)
 			return descendantClasses.keySet();
 		return new HashSet<Integer>();
 	}
 
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of direct parents of the given class
-	 */
-	public Set<Integer> getParents(int classId)
-	{
-		return getAncestors(classId,1);
-	}
-	
 	/**
 	 * @param indivId: the id of the individual to search in the map
 	 * @param prop: the property relating the individuals
 	 * @return the list of 'parent' relations of the given individual
 	 */
+	@Override
 	public Set<Integer> getParentIndividuals(int indivId, int prop)
 	{
 		if(activeRelation.contains(indivId,prop))
@@ -858,87 +928,52 @@ public class RelationshipMap
 		return new HashSet<Integer>();
 	}
 	
-	/**
-	 * @param child: the id of the child class to search in the map
-	 * @param parent: the id of the parent class to search in the map
-	 * @return the 'best' relationship between the two classes
-	 */
-	public Relationship getRelationship(int child, int parent)
-	{
-		if(!ancestorClasses.contains(child, parent))
-			return null;
-		Relationship rel = ancestorClasses.get(child).get(parent).get(0);
-		for(Relationship r : ancestorClasses.get(child).get(parent))
-			if(r.compareTo(rel) > 0)
-				rel = r;
-		return rel;
-	}
-
 	/**
 	 * @param child: the id of the child class to search in the map
 	 * @param parent: the id of the parent class to search in the map
 	 * @return the relationships between the two classes
 	 */
+	@Override
 	public Vector<Relationship> getRelationships(int child, int parent)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().get(child, parent);
 		return ancestorClasses.get(child).get(parent);
 	}
 	
 	/**
-	 * @param classId: the id of the class to search in the map
-	 * @param prop: the relationship property between the class and its ancestors
-	 * @return the list of strict siblings of the given class (through the subclass relation)
-	 */
-	public Set<Integer> getSiblings(int classId)
-	{
-		Set<Integer> parents = getAncestors(classId,1,-1);
-		HashSet<Integer> siblings = new HashSet<Integer>();
-		for(Integer i : parents)
-		{
-			Set<Integer> children = getDescendants(i,1,-1);
-			for(Integer j : children)
-				if(j != classId)
-					siblings.add(j);
-		}
-		return siblings;
-	}
-	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @return the list of siblings of the given class for all
-	 * subclass relationships
+	 * @return the SiblingIndex of the map, building it if needed
 	 */
-	public Set<Integer> getSiblingsProperty(int classId, int prop)
+	@Override
+	public SiblingIndex getSiblingIndex()
 	{
-		Set<Integer> parents = getAncestors(classId,1,prop);
-		HashSet<Integer> siblings = new HashSet<Integer>();
-		for(Integer i : parents)
-		{
-			Set<Integer> children = getDescendants(i,1,prop);
-			for(Integer j : children)
-				if(j != classId)
-					siblings.add(j);
-		}
-		return siblings;
+		awaitClosure();
+		SiblingIndex index = siblingIndex;
+		if(index != null)
+			return index;
+		return buildSiblingIndex();
 	}
 	
 	/**
 	 * @param classId: the id of the class to search in the map
-	 * @param direct: whether to return all subclasses or just the direct ones
-	 * @return the list of direct or indirect subclasses of the input class
+	 * @return the direct subclasses of the input class, sorted by id
+	 * (the array may be shared by the map, so it must not be changed)
 	 */
-	public Set<Integer> getSubClasses(int classId, boolean direct)
+	@Override
+	public int[] getSubClassArray(int classId)
 	{
-		if(direct)
-			return getDescendants(classId,1,-1);
-		else
-			return getDescendantsProperty(classId,-1);
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().atDistance(classId, 1, true);
+		return toArray(getSubClasses(classId,true));
 	}
 	
 	/**
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of sub-properties of the input property
 	 */
+	@Override
 	public Set<Integer> getSubProperties(int propId)
 	{
 		if(subProp.contains(propId))
@@ -949,21 +984,23 @@ public class RelationshipMap
 	
 	/**
 	 * @param classId: the id of the class to search in the map
-	 * @param direct: whether to return all superclasses or just the direct ones
-	 * @return the list of direct or indirect superclasses of the input class
+	 * @return the direct superclasses of the input class, sorted by id
+	 * (the array may be shared by the map, so it must not be changed)
 	 */
-	public Set<Integer> getSuperClasses(int classId, boolean direct)
+	@Override
+	public int[] getSuperClassArray(int classId)
 	{
-		if(direct)
-			return getAncestors(classId,1,-1);
-		else
-			return getAncestorsProperty(classId,-1);
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().atDistance(classId, 1, true);
+		return toArray(getSuperClasses(classId,true));
 	}
 	
 	/**
 	 * @param propId: the id of the property to search in the map
 	 * @return the list of super-properties of the input property
 	 */
+	@Override
 	public Set<Integer> getSuperProperties(int propId)
 	{
 		if(superProp.contains(propId))
@@ -975,7 +1012,8 @@ public class RelationshipMap
 	/**
 	 * @return the table of transitive properties
 	 */
-	public Table2Set<Integer,Integer> getTransitiveProperties()
+	@Override
+	public IntTable2Set getTransitiveProperties()
 	{
 		return transitiveOver;
 	}
@@ -984,6 +1022,7 @@ public class RelationshipMap
 	 * @param class: the index of the class to search in the map
 	 * @return whether there is a disjoint clause associated with the class
 	 */
+	@Override
 	public boolean hasDisjoint(int classId)
 	{
 		return disjointMap.contains(classId);
@@ -994,6 +1033,7 @@ public class RelationshipMap
 	 * @return whether there is a disjoint clause associated with the class
 	 * or any of its 'is_a' ancestors
 	 */
+	@Override
 	public boolean hasDisjointTransitive(int classId)
 	{
 		//Get all superclasses of the class
@@ -1013,6 +1053,7 @@ public class RelationshipMap
 	 * @param two: the second class to check for disjointness
 	 * @return whether there is a disjoint clause between one and two
 	 */
+	@Override
 	public boolean hasDisjointClause(int one, int two)
 	{
 		return (disjointMap.contains(one) && disjointMap.contains(one,two));
@@ -1025,8 +1066,12 @@ public class RelationshipMap
 	 * @return whether there is a relationship between child and parent
 	 *  with the given property
 	 */
+	@Override
 	public boolean hasProperty(int child, int parent, int property)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.ancestors().hasProperty(child, parent, property);
 		Vector<Relationship> rels = getRelationships(child,parent);
 		for(Relationship r : rels)
 			if(r.getProperty() == property)
@@ -1037,6 +1082,7 @@ public class RelationshipMap
 	/**
 	 * @return the number of instantiations in the map
 	 */
+	@Override
 	public int individualRelationshipCount()
 	{
 		return activeRelation.size();
@@ -1045,15 +1091,27 @@ public class RelationshipMap
 	/**
 	 * @return the number of instantiations in the map
 	 */
+	@Override
 	public int instanceCount()
 	{
 		return instanceOfMap.size();
 	}
 	
+	/**
+	 * @return whether the hierarchical relations are transitively closed
+	 * (false while the transitive closure is running in the background)
+	 */
+	@Override
+	public boolean isClosed()
+	{
+		return closed;
+	}
+	
 	/**
 	 * @param prop: the index of the property to check
 	 * @return whether the property is functional
 	 */
+	@Override
 	public boolean isFunctional(int prop)
 	{
 		return functional.contains(prop);
@@ -1064,8 +1122,12 @@ public class RelationshipMap
 	 * @param parent: the index of the parent class
 	 * @return whether the RelationshipMap contains an 'is_a' relationship between child and parent
 	 */	
+	@Override
 	public boolean isSubclass(int child, int parent)
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.descendants().hasProperty(parent, child, -1);
 		if(!descendantClasses.contains(parent,child))
 			return false;
 		Vector<Relationship> rels = descendantClasses.get(parent,child);
@@ -1079,6 +1141,7 @@ public class RelationshipMap
 	 * @param prop: the index of the property to check
 	 * @return whether the property is symmetric
 	 */
+	@Override
 	public boolean isSymmetric(int prop)
 	{
 		return symmetric.contains(prop);
@@ -1087,11 +1150,54 @@ public class RelationshipMap
 	/**
 	 * @return the number of class relationships in the map
 	 */
+	@Override
 	public int relationshipCount()
 	{
+		awaitClosure();
+		if(hierarchy != null)
+			return hierarchy.relationshipCount();
 		return ancestorClasses.size();
 	}
 	
+	/**
+	 * Replaces the hierarchical relations with the given ClassHierarchy,
+	 * which must be the transitive closure of the current relations (e.g.,
+	 * restored from a snapshot), so that the map is closed without running
+	 * the transitive closure
+	 * @param h: the closed ClassHierarchy
+	 */
+	public void setClassHierarchy(ClassHierarchy h)
+	{
+		awaitClosure();
+		thaw();
+		hierarchy = h;
+		ancestorClasses = null;
+		descendantClasses = null;
+		disjointIndex = null;
+		closed = true;
+	}
+	
+	/**
+	 * Sets whether to log the time, number of new relationships and number
+	 * of classes rerun sequentially of each round of the transitive closure
+	 * @param log: whether to log the rounds
+	 */
+	public void setClosureLogging(boolean log)
+	{
+		closureLog = log;
+	}
+	
+	/**
+	 * Sets the number of threads of the transitive closure (with a single
+	 * thread the closure is fully sequential)
+	 * @param threads: the number of threads to use
+	 */
+	@Override
+	public void setClosureThreads(int threads)
+	{
+		closureThreads = Math.max(1, threads);
+	}
+	
 	/**
 	 * Checks whether two individuals share a direct class assignment
 	 * @param ind1Id: the first individual to check
@@ -1099,6 +1205,7 @@ public class RelationshipMap
 	 * @return whether ind1Id and ind2Id have at least one class in common
 	 * in their direct class assignments
 	 */
+	@Override
 	public boolean shareClass(int ind1Id, int ind2Id)
 	{
 		if(instanceOfMap.get(ind1Id) == null || instanceOfMap.get(ind2Id) == null)
@@ -1109,76 +1216,94 @@ public class RelationshipMap
 		return false;
 	}
 	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @param direct: whether to return all subclasses or just the direct ones
-	 * @return the number of direct or indirect subclasses of the input class
-	 */
-	public int subClassCount(int classId, boolean direct)
-	{
-		return getSubClasses(classId,direct).size();
-	}
-	
-	/**
-	 * @param classId: the id of the class to search in the map
-	 * @param direct: whether to return all superclasses or just the direct ones
-	 * @return the number of direct or indirect superclasses of the input class
-	 */
-	public int superClassCount(int classId, boolean direct)
-	{
-		return getSuperClasses(classId,direct).size();
-	}
-	
 	/**
 	 * Compute the transitive closure of the RelationshipMap
 	 * by adding inherited relationships (and their distances)
 	 * This is an implementation of the Semi-Naive Algorithm
+	 * Each round can be run in parallel (see closeRound), with
+	 * the same result as running it sequentially
+	 * The closed relations are then frozen into a ClassHierarchy
 	 */
+	@Override
 	public void transitiveClosure()
 	{
+		awaitClosure();
+		thaw();
 		//Transitive closure for class relations
 		Set<Integer> t = descendantClasses.keySet();
+		ForkJoinPool pool = null;
+		if(closureThreads > 1)
+		{
+			pool = new ForkJoinPool(closureThreads);
+			closurePool = pool;
+		}
 		int lastCount = 0;
 		for(int distance = 1; lastCount != descendantClasses.size(); distance++)
 		{
+			long time = System.currentTimeMillis();
 			lastCount = descendantClasses.size();
-			for(Integer i : t)
+			int recomputed = 0;
+			if(pool == null)
 			{
-				Set<Integer> childs = getChildren(i);
-				childs.addAll(getEquivalences(i));
-				Set<Integer> pars = getAncestors(i,distance);
-				for(Integer j : pars)
+				for(Integer i : t)
+					infer(i, distance, null);
+			}
+			else
+				recomputed = closeRound(t, distance, pool);
+			time = System.currentTimeMillis() - time;
+			if(closureLog)
+				System.out.println(getLogName() + ": closure round " + distance + ": " +
+						(descendantClasses.size() - lastCount) + " new relationships in " + time +
+						" ms (" + recomputed + " classes rerun sequentially)");
+		}
+		if(pool != null)
+		{
+			pool.shutdown();
+			closurePool = null;
+		}
+		freeze();
+		closed = true;
+	}
+	
+	/**
+	 * Starts the transitive closure of the RelationshipMap in a background
+	 * thread and returns immediately (unless it is already running there);
+	 * queries about class relationships wait for the closure to finish,
+	 * so jobs that don't use them never do
+	 */
+	@Override
+	public void transitiveClosureInBackground()
+	{
+		if(closure != null)
+			return;
+		closureFailure = null;
+		Thread t = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
 				{
-					Vector<Relationship> rel1 = getRelationships(i,j);
-					for(int k = 0; k < rel1.size(); k++)
-					{
-						Relationship r1 = rel1.get(k);
-						int p1 = r1.getProperty();
-						for(Integer h : childs)
-						{
-							Vector<Relationship> rel2 = getRelationships(h,i);
-							for(int l = 0; l < rel2.size(); l++)
-							{
-								Relationship r2 = rel2.get(l);
-								int p2 = r2.getProperty();
-								//We only do transitive closure if the property is the same (and transitive)
-								//for two relationships or one of the properties is 'is_a' (-1)
-								if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(p2,p1)))
-									continue;
-								int dist = r1.getDistance() + r2.getDistance();
-								int prop;
-								if(p1 == p2 || p1 != -1)
-									prop = p1;
-								else
-									prop = p2;
-								boolean rest = r1.getRestriction() && r2.getRestriction();
-								addClassRelationship(h, j, dist, prop, rest);
-							}
-						}
-					}
+					long time = System.currentTimeMillis()/1000;
+					transitiveClosure();
+					time = System.currentTimeMillis()/1000 - time;
+					System.out.println(getLogName() + ": background transitive closure finished in " + time + " seconds");
+				}
+				catch(Throwable e)
+				{
+					//Recorded before the thread ends, so that no query
+					//runs on the partly closed relations without seeing it
+					closureFailure = e;
+				}
+				finally
+				{
+					closure = null;
 				}
 			}
-		}
+		}, "RelationshipMap closure");
+		t.setDaemon(true);
+		closure = t;
+		t.start();
 	}
 	
 	/**
@@ -1187,17 +1312,22 @@ public class RelationshipMap
 	 * @return whether adding the relationship between child and parent
 	 * to the RelationshipMap would violate a disjoint clause
 	 */
+	@Override
 	public boolean violatesDisjoint(int child, int parent)
 	{
-		//Get all descendants of the child
-		Set<Integer> descendants = getDescendants(child);
+		awaitClosure();
+		//Get all descendants of the child (copied, so that
+		//the RelationshipMap is not changed)
+		Set<Integer> descendants = new HashSet<Integer>(getDescendants(child));
 		//Plus the child itself
 		descendants.add(child);
 		//Then all ancestors of the parent
-		Set<Integer> ancestors = getAncestors(parent);
+		Set<Integer> ancestors = new HashSet<Integer>(getAncestors(parent));
 		//Plus the parent itself
 		ancestors.add(parent);
 		
+		if(hierarchy != null)
+			return getDisjointIndex().anyDisjoint(descendants, ancestors);
 		//For each descendant
 		for(Integer i : descendants)
 			//And each ancestor
@@ -1207,4 +1337,342 @@ public class RelationshipMap
 					return true;
 		return false;
 	}
-}
\ No newline at end of file
+	
+//Private Methods
+	
+	//Goes down from the given classes until there are at least 3 of them
+	//(or until the next level would be empty)
+	private HashSet<Integer> branch(HashSet<Integer> top)
+	{
+		while(top.size() > 0 && top.size() < 3)
+		{
+			HashSet<Integer> newTop = new HashSet<Integer>();
+			for(Integer a : top)
+				newTop.addAll(getChildren(a));
+			if(newTop.isEmpty())
+				break;
+			top = newTop;
+		}
+		return top;
+	}
+	
+	//Computes the high level classes and the high level ancestors of each
+	//class
+	private synchronized HashSet<Integer> buildHighLevelClasses()
+	{
+		if(highLevelClasses != null)
+			return highLevelClasses;
+		
+		AML aml = AML.getInstance();
+		
+		//First get the very top classes
+		HashSet<Integer> sourceTop = new HashSet<Integer>();
+		HashSet<Integer> targetTop = new HashSet<Integer>();
+		Set<Integer> ancestors = getParents();
+		//Which are classes that have children but not parents
+		//NOTE: This may not work out well if the ontologies are not is_a complete
+		for(Integer a : ancestors)
+		{
+			if(getParents(a).size() == 0 && getChildren(a).size() > 0)
+			{
+				//If the map has a single ontology, its top classes are all
+				//in the same group, otherwise they are split by ontology
+				if(owner != null)
+					sourceTop.add(a);
+				else
+				{
+					if(aml.getSource().contains(a))
+						sourceTop.add(a);
+					if(aml.getTarget().contains(a))
+						targetTop.add(a);
+				}
+			}
+		}
+		//Now we go down the ontologies until we reach a significant branching
+		sourceTop = branch(sourceTop);
+		targetTop = branch(targetTop);
+		HashSet<Integer> high = new HashSet<Integer>(sourceTop);
+		high.addAll(targetTop);
+		
+		//Then list the high level ancestors of each class, which are
+		//the classes of which it is a descendant
+		int max = -1;
+		for(Integer c : getChildren())
+			if(c > max)
+				max = c;
+		int[][] highAncs = new int[max + 1][];
+		int[] count = new int[max + 1];
+		for(Integer h : high)
+			for(Integer d : getDescendants(h))
+				count[d]++;
+		for(int i = 0; i <= max; i++)
+			if(count[i] > 0)
+				highAncs[i] = new int[count[i]];
+		Arrays.fill(count, 0);
+		for(Integer h : high)
+			for(Integer d : getDescendants(h))
+				highAncs[d][count[d]++] = h;
+		for(int[] a : highAncs)
+			if(a != null)
+				Arrays.sort(a);
+		highLevelAncestors = highAncs;
+		highLevelClasses = high;
+		return high;
+	}
+	
+	//Builds the SiblingIndex
+	private synchronized SiblingIndex buildSiblingIndex()
+	{
+		if(siblingIndex == null)
+			siblingIndex = new SiblingIndex(this);
+		return siblingIndex;
+	}
+	
+	//Freezes the hierarchical relations into a ClassHierarchy, which
+	//replaces the tables unless the relations can't be encoded in it
+	private void freeze()
+	{
+		hierarchy = ClassHierarchy.build(ancestorClasses, descendantClasses);
+		if(hierarchy != null)
+		{
+			ancestorClasses = null;
+			descendantClasses = null;
+		}
+	}
+	
+	//Returns the DisjointIndex, building it if needed
+	private DisjointIndex getDisjointIndex()
+	{
+		DisjointIndex index = disjointIndex;
+		if(index == null)
+		{
+			index = new DisjointIndex(this);
+			disjointIndex = index;
+		}
+		return index;
+	}
+	
+	//Runs a round of the transitive closure in blocks of classes, in the
+	//order of the classes in the map: the relationships inferred through
+	//each class of a block are computed in parallel (reading the map as it
+	//is at the start of the block) and then added in order, as a sequential
+	//round would add them; a class is inferred again, sequentially, if its
+	//relationships were changed by a class before it in the block, or if it
+	//would change its own relationships while they are read
+	//Returns the number of classes that were inferred again
+	private int closeRound(Set<Integer> classes, int distance, ForkJoinPool pool)
+	{
+		//The classes aren't changed during a round, since relationships are
+		//only added between descendants and ancestors of existing classes
+		Integer[] order = classes.toArray(new Integer[classes.size()]);
+		HashSet<Integer> changed = new HashSet<Integer>();
+		int recomputed = 0;
+		for(int from = 0; from < order.length; from += CLOSURE_BLOCK)
+		{
+			int to = Math.min(from + CLOSURE_BLOCK, order.length);
+			Inference[] inferred = new Inference[to - from];
+			pool.invoke(new ClosureTask(order, from, to, from, distance, inferred));
+			changed.clear();
+			for(int k = from; k < to; k++)
+			{
+				Inference inf = inferred[k-from];
+				if(inf.selfChanging || changed.contains(order[k]))
+				{
+					inf = new Inference(true);
+					infer(order[k], distance, inf);
+					recomputed++;
+				}
+				else
+					inf.addAll();
+				inf.changed(changed);
+			}
+		}
+		return recomputed;
+	}
+	
+	//The name of the map in the log of the transitive closure: the URI of
+	//its ontology, so that the lines of closures running in parallel can
+	//be told apart
+	private String getLogName()
+	{
+		if(owner != null && owner.getURI() != null)
+			return owner.getURI();
+		return "RelationshipMap";
+	}
+	
+	//Infers the relationships between the children (and equivalences) of
+	//class i and its ancestors at the given distance, adding them to the
+	//map or, if an Inference is given, passing them to it
+	private void infer(int i, int distance, Inference inf)
+	{
+		Set<Integer> childs = getChildren(i);
+		childs.addAll(getEquivalences(i));
+		Set<Integer> pars = getAncestors(i,distance);
+		for(Integer j : pars)
+		{
+			Vector<Relationship> rel1 = getRelationships(i,j);
+			for(int k = 0; k < rel1.size(); k++)
+			{
+				Relationship r1 = rel1.get(k);
+				int p1 = r1.getProperty();
+				for(Integer h : childs)
+				{
+					Vector<Relationship> rel2 = getRelationships(h,i);
+					for(int l = 0; l < rel2.size(); l++)
+					{
+						Relationship r2 = rel2.get(l);
+						int p2 = r2.getProperty();
+						//We only do transitive closure if the property is the same (and transitive)
+						//for two relationships or one of the properties is 'is_a' (-1)
+						if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(p2,p1)))
+							continue;
+						int dist = r1.getDistance() + r2.getDistance();
+						int prop;
+						if(p1 == p2 || p1 != -1)
+							prop = p1;
+						else
+							prop = p2;
+						boolean rest = r1.getRestriction() && r2.getRestriction();
+						if(inf == null)
+							addClassRelationship(h, j, dist, prop, rest);
+						else
+							inf.add(i, h, j, dist, prop, rest);
+					}
+				}
+			}
+		}
+	}
+	
+	//Restores the tables of hierarchical relations from the ClassHierarchy,
+	//so that they can be changed
+	private void thaw()
+	{
+		closed = false;
+		highLevelClasses = null;
+		highLevelAncestors = null;
+		siblingIndex = null;
+		if(hierarchy == null)
+			return;
+		ancestorClasses = new Table3List<Integer,Integer,Relationship>();
+		descendantClasses = new Table3List<Integer,Integer,Relationship>();
+		hierarchy.fill(ancestorClasses, descendantClasses);
+		hierarchy = null;
+		disjointIndex = null;
+	}
+	
+	//Returns a sorted array with the elements of a set
+	private int[] toArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(Integer j : set)
+			array[i++] = j;
+		Arrays.sort(array);
+		return array;
+	}
+	
+	//Returns a new set with the elements of an array
+	private HashSet<Integer> toSet(int[] array)
+	{
+		HashSet<Integer> set = new HashSet<Integer>();
+		for(int i : array)
+			set.add(i);
+		return set;
+	}
+	
+	//The relationships inferred through a class in a round of the closure
+	private class Inference
+	{
+		//Whether the relationships are added to the map as they are inferred
+		private boolean live;
+		//Whether a relationship involves the class itself, so that adding it
+		//would change the relationships from which the class infers others
+		private boolean selfChanging;
+		//The inferred relationships as (child, parent, distance, property,
+		//restriction) quintuples
+		private int[] rels;
+		private int size;
+		
+		private Inference(boolean live)
+		{
+			this.live = live;
+			selfChanging = false;
+			rels = new int[20];
+			size = 0;
+		}
+		
+		private void add(int i, int child, int parent, int distance, int prop, boolean rest)
+		{
+			if(child == i || parent == i)
+				selfChanging = true;
+			if(live)
+				addClassRelationship(child, parent, distance, prop, rest);
+			if(size + 5 > rels.length)
+				rels = Arrays.copyOf(rels, rels.length * 2);
+			rels[size++] = child;
+			rels[size++] = parent;
+			rels[size++] = distance;
+			rels[size++] = prop;
+			rels[size++] = rest ? 1 : 0;
+		}
+		
+		//Adds the relationships to the map, in the order they were inferred
+		private void addAll()
+		{
+			for(int k = 0; k < size; k += 5)
+				addClassRelationship(rels[k], rels[k+1], rels[k+2], rels[k+3], rels[k+4] == 1);
+		}
+		
+		//Adds the classes with changed relationships to the given set
+		private void changed(Set<Integer> changed)
+		{
+			for(int k = 0; k < size; k += 5)
+			{
+				changed.add(rels[k]);
+				changed.add(rels[k+1]);
+			}
+		}
+	}
+	
+	//Infers the relationships through a range of the classes of a block
+	private class ClosureTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private Integer[] order;
+		private int from;
+		private int to;
+		//The start of the block, i.e., the class of inferred[0]
+		private int base;
+		private int distance;
+		private Inference[] inferred;
+		
+		private ClosureTask(Integer[] order, int from, int to, int base, int distance, Inference[] inferred)
+		{
+			this.order = order;
+			this.from = from;
+			this.to = to;
+			this.base = base;
+			this.distance = distance;
+			this.inferred = inferred;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(to - from <= CLOSURE_TASK)
+			{
+				for(int k = from; k < to; k++)
+				{
+					inferred[k-base] = new Inference(false);
+					infer(order[k], distance, inferred[k-base]);
+				}
+			}
+			else
+			{
+				int mid = (from + to) / 2;
+				invokeAll(new ClosureTask(order, from, mid, base, distance, inferred),
+						new ClosureTask(order, mid, to, base, distance, inferred));
+			}
+		}
+	}
+}
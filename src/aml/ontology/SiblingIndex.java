@@ -0,0 +1,296 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Index of the siblings of the classes of a RelationshipMap. The direct       *
+* children of each parent through each property form a sibling group, stored  *
+* once as a sorted array, and each class lists the groups of its parents      *
+* through the properties that relate it to them (all of them, as in           *
+* getAllSiblings(), and the 'is_a' ones, as in getSiblings()). The siblings   *
+* of a class are then iterated with a Cursor, which merges its groups without *
+* allocating and can stop after a maximum number of siblings.                 *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+public class SiblingIndex
+{
+
+//Attributes
+
+	//The row of each class, by class index (0 if the class has no groups,
+	//otherwise the row + 1)
+	private int[] row;
+	//The groups of each row, for all properties and for 'is_a' only
+	private int[] allStart;
+	private int[] allGroups;
+	private int[] isAStart;
+	private int[] isAGroups;
+	//The sorted members of each group
+	private int[] memberStart;
+	private int[] members;
+	//The maximum number of groups of a class
+	private int maxGroups;
+
+//Constructors
+
+	/**
+	 * Builds the SiblingIndex of the given RelationshipMap (later changes
+	 * to the RelationshipMap are not reflected in the index)
+	 * @param rm: the RelationshipMap to index
+	 */
+	public SiblingIndex(AbstractRelationshipMap rm)
+	{
+		int[] classes = toSortedArray(rm.getChildren());
+		int max = classes.length == 0 ? -1 : classes[classes.length-1];
+		row = new int[max + 1];
+		//Number the groups by parent and property as they are found
+		HashMap<Long,Integer> groupIds = new HashMap<Long,Integer>();
+		int[] groupParent = new int[16];
+		int[] groupProp = new int[16];
+		int[][] all = new int[classes.length][];
+		int[][] isA = new int[classes.length][];
+		int[] buffer = new int[16];
+		for(int i = 0; i < classes.length; i++)
+		{
+			int c = classes[i];
+			int count = 0;
+			for(Integer p : rm.getAncestors(c,1))
+			{
+				for(Relationship r : rm.getRelationships(c,p))
+				{
+					Long key = ((long)p << 32) | (r.getProperty() & 0xFFFFFFFFL);
+					Integer g = groupIds.get(key);
+					if(g == null)
+					{
+						g = groupIds.size();
+						groupIds.put(key, g);
+						if(g == groupParent.length)
+						{
+							groupParent = Arrays.copyOf(groupParent, g * 2);
+							groupProp = Arrays.copyOf(groupProp, g * 2);
+						}
+						groupParent[g] = p;
+						groupProp[g] = r.getProperty();
+					}
+					if(count == buffer.length)
+						buffer = Arrays.copyOf(buffer, count * 2);
+					buffer[count++] = g;
+				}
+			}
+			all[i] = distinct(buffer, count);
+			row[c] = i + 1;
+		}
+		//Get the members of each group
+		int groups = groupIds.size();
+		int[][] groupMembers = new int[groups][];
+		int total = 0;
+		for(int g = 0; g < groups; g++)
+		{
+			groupMembers[g] = toSortedArray(rm.getDescendants(groupParent[g], 1, groupProp[g]));
+			total += groupMembers[g].length;
+		}
+		memberStart = new int[groups + 1];
+		members = new int[total];
+		for(int g = 0; g < groups; g++)
+		{
+			System.arraycopy(groupMembers[g], 0, members, memberStart[g], groupMembers[g].length);
+			memberStart[g+1] = memberStart[g] + groupMembers[g].length;
+		}
+		//The 'is_a' groups of a class are those it is a member of
+		for(int i = 0; i < classes.length; i++)
+		{
+			int count = 0;
+			for(int g : all[i])
+				if(groupProp[g] == -1 && Arrays.binarySearch(members,
+						memberStart[g], memberStart[g+1], classes[i]) > -1)
+					buffer[count++] = g;
+			isA[i] = Arrays.copyOf(buffer, count);
+		}
+		allStart = new int[classes.length + 1];
+		isAStart = new int[classes.length + 1];
+		for(int i = 0; i < classes.length; i++)
+		{
+			allStart[i+1] = allStart[i] + all[i].length;
+			isAStart[i+1] = isAStart[i] + isA[i].length;
+			maxGroups = Math.max(maxGroups, all[i].length);
+		}
+		allGroups = new int[allStart[classes.length]];
+		isAGroups = new int[isAStart[classes.length]];
+		for(int i = 0; i < classes.length; i++)
+		{
+			System.arraycopy(all[i], 0, allGroups, allStart[i], all[i].length);
+			System.arraycopy(isA[i], 0, isAGroups, isAStart[i], isA[i].length);
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * @return a new Cursor over this index (a Cursor is not thread-safe,
+	 * so each thread should use its own)
+	 */
+	public Cursor cursor()
+	{
+		return new Cursor();
+	}
+
+	/**
+	 * Iterator of the siblings of a class, in increasing order of index
+	 */
+	public class Cursor
+	{
+		private int classId;
+		private int[] groups;
+		private int from;
+		private int to;
+		//The position of the next member of each group of the class
+		private int[] next;
+		//The number of siblings still to return
+		private int remaining;
+
+		private Cursor()
+		{
+			next = new int[maxGroups];
+		}
+
+		/**
+		 * Counts the siblings of a class, up to a maximum, and then
+		 * positions the Cursor at the first of them
+		 * @param classId: the index of the class
+		 * @param isA: whether to count only 'is_a' siblings
+		 * @param max: the maximum number of siblings to count
+		 * @return the number of siblings of the class, or max+1 if there
+		 * are more than max of them
+		 */
+		public int count(int classId, boolean isA, int max)
+		{
+			reset(classId, isA, max + 1);
+			int count = 0;
+			while(next() != -1)
+				count++;
+			reset(classId, isA);
+			return count;
+		}
+
+		/**
+		 * @return the index of the next sibling, or -1 if there are no
+		 * more siblings
+		 */
+		public int next()
+		{
+			while(remaining > 0)
+			{
+				//Get the smallest next member of the groups
+				int min = -1;
+				for(int k = from; k < to; k++)
+				{
+					int g = groups[k];
+					int n = next[k - from];
+					if(n < memberStart[g+1] && (min == -1 || members[n] < min))
+						min = members[n];
+				}
+				if(min == -1)
+					return -1;
+				//And skip it in all groups
+				for(int k = from; k < to; k++)
+				{
+					int g = groups[k];
+					int n = next[k - from];
+					if(n < memberStart[g+1] && members[n] == min)
+						next[k - from]++;
+				}
+				if(min != classId)
+				{
+					remaining--;
+					return min;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Positions the Cursor at the first sibling of a class
+		 * @param classId: the index of the class
+		 * @param isA: whether to iterate only 'is_a' siblings (as in
+		 * getSiblings()) or the siblings through any property (as in
+		 * getAllSiblings())
+		 */
+		public void reset(int classId, boolean isA)
+		{
+			reset(classId, isA, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Positions the Cursor at the first sibling of a class, stopping
+		 * after the given number of siblings
+		 * @param classId: the index of the class
+		 * @param isA: whether to iterate only 'is_a' siblings
+		 * @param max: the maximum number of siblings to iterate
+		 */
+		public void reset(int classId, boolean isA, int max)
+		{
+			this.classId = classId;
+			remaining = max;
+			int r = classId < 0 || classId >= row.length ? 0 : row[classId];
+			if(r == 0)
+			{
+				from = 0;
+				to = 0;
+				return;
+			}
+			r--;
+			if(isA)
+			{
+				groups = isAGroups;
+				from = isAStart[r];
+				to = isAStart[r+1];
+			}
+			else
+			{
+				groups = allGroups;
+				from = allStart[r];
+				to = allStart[r+1];
+			}
+			for(int k = from; k < to; k++)
+				next[k - from] = memberStart[groups[k]];
+		}
+	}
+
+//Private Methods
+
+	//Returns the distinct values of the first count positions of an array
+	private static int[] distinct(int[] array, int count)
+	{
+		int[] sorted = Arrays.copyOf(array, count);
+		Arrays.sort(sorted);
+		int n = 0;
+		for(int i = 0; i < sorted.length; i++)
+			if(n == 0 || sorted[i] != sorted[n-1])
+				sorted[n++] = sorted[i];
+		return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+	}
+
+	private static int[] toSortedArray(Set<Integer> set)
+	{
+		int[] array = new int[set.size()];
+		int i = 0;
+		for(Integer j : set)
+			array[i++] = j;
+		Arrays.sort(array);
+		return array;
+	}
+}
@@ -13,13 +13,20 @@
 *                                                                             *
 *******************************************************************************
 * The global map of URIs, numeric indexes, and entity types in the opened     *
-* ontologies.                                                                 *
+* ontologies. As the indexes are given out sequentially from 1, the URIs and  *
+* the types are stored in arrays by index, and the URIs are indexed by an     *
+* open-addressing table of indexes. Each URI is stored as the id of its       *
+* namespace (shared by all URIs with that namespace) plus its local name.     *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
 package aml.ontology;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import aml.settings.EntityType;
@@ -33,11 +40,21 @@ public class URIMap
 
 //Attributes
 	
-	//The numeric index (Integer) <-> URI (String) maps of ontology entities 
-	private HashMap<Integer,String> indexURI;
-	private HashMap<String,Integer> URIindex;
-	//The numeric index (Integer) -> EntityType map of ontology entities 
-	private HashMap<Integer,EntityType> indexType;
+	//The initial capacity of the arrays (the table has twice as many slots)
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final EntityType[] TYPES = EntityType.values();
+	//The namespaces of the URIs, and the id of each namespace
+	private String[] namespaces;
+	private HashMap<String,Integer> namespaceIds;
+	//The namespace id, the local name and the EntityType ordinal of each
+	//index (position 0 is unused)
+	private int[] indexNamespace;
+	private String[] indexLocal;
+	private byte[] indexType;
+	//The open-addressing table of URIs, with the index of the URI in each
+	//used slot (0 marks an empty slot), and the hash code of the URI
+	private int[] URIindex;
+	private int[] URIhash;
 	//The total number of stored URIs
 	private int size;
 	
@@ -45,9 +62,13 @@ public class URIMap
 	
 	public URIMap()
 	{
-		indexURI = new HashMap<Integer,String>();
-		URIindex = new HashMap<String,Integer>();
-		indexType = new HashMap<Integer,EntityType>();
+		namespaces = new String[16];
+		namespaceIds = new HashMap<String,Integer>();
+		indexNamespace = new int[DEFAULT_CAPACITY];
+		indexLocal = new String[DEFAULT_CAPACITY];
+		indexType = new byte[DEFAULT_CAPACITY];
+		URIindex = new int[DEFAULT_CAPACITY * 2];
+		URIhash = new int[DEFAULT_CAPACITY * 2];
 		size = 0;
 	}
 	
@@ -59,18 +80,32 @@ public class URIMap
 	 */
 	public int addURI(String uri, EntityType t)
 	{
-		String newUri = uri;
-		if(URIindex.containsKey(newUri))
-			return URIindex.get(newUri);
-		else
+		int h = hash(uri);
+		int mask = URIindex.length - 1;
+		int k = h & mask;
+		while(URIindex[k] != 0)
 		{
-			size++;
-			Integer i = new Integer(size);
-			indexURI.put(i,newUri);
-			URIindex.put(newUri,i);
-			indexType.put(i, t);
-			return size;
+			if(URIhash[k] == h && matches(URIindex[k], uri))
+				return URIindex[k];
+			k = (k + 1) & mask;
 		}
+		size++;
+		if(size == indexLocal.length)
+		{
+			indexNamespace = Arrays.copyOf(indexNamespace, size * 2);
+			indexLocal = Arrays.copyOf(indexLocal, size * 2);
+			indexType = Arrays.copyOf(indexType, size * 2);
+		}
+		int i = localNameStart(uri);
+		indexNamespace[size] = namespaceId(uri.substring(0, i));
+		indexLocal[size] = uri.substring(i);
+		indexType[size] = (byte)t.ordinal();
+		URIindex[k] = size;
+		URIhash[k] = h;
+		//Keep the load factor of the table at or below 1/2
+		if(size * 2 > URIindex.length)
+			rehash(URIindex.length * 2);
+		return size;
 	}
 	
 	/**
@@ -79,10 +114,12 @@ public class URIMap
 	 */
 	public int getIndex(String uri)
 	{
-		if(URIindex.containsKey(uri))
-			return URIindex.get(uri);
-		else
-			return -1;
+		int h = hash(uri);
+		int mask = URIindex.length - 1;
+		for(int k = h & mask; URIindex[k] != 0; k = (k + 1) & mask)
+			if(URIhash[k] == h && matches(URIindex[k], uri))
+				return URIindex[k];
+		return -1;
 	}
 	
 	/**
@@ -90,7 +127,38 @@ public class URIMap
 	 */
 	public Set<Integer> getIndexes()
 	{
-		return indexURI.keySet();
+		return new AbstractSet<Integer>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof Integer && contains(((Integer)o).intValue());
+			}
+
+			private boolean contains(int index)
+			{
+				return index > 0 && index <= size;
+			}
+
+			@Override
+			public Iterator<Integer> iterator()
+			{
+				return new IndexIterator<Integer>()
+				{
+					@Override
+					protected Integer get(int index)
+					{
+						return index;
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
 	}
 	
 	/**
@@ -99,13 +167,9 @@ public class URIMap
 	 */
 	public String getLocalName(int index)
 	{
-		String uri = indexURI.get(index);
-		if(uri == null)
+		if(index <= 0 || index > size)
 			return null;
-		int i = uri.indexOf("#") + 1;
-		if(i == 0)
-			i = uri.lastIndexOf("/") + 1;
-		return uri.substring(i);
+		return indexLocal[index];
 	}
 
 	/**
@@ -114,7 +178,9 @@ public class URIMap
 	 */
 	public EntityType getType(int index)
 	{
-		return indexType.get(index);
+		if(index <= 0 || index > size)
+			return null;
+		return TYPES[indexType[index]];
 	}
 	
 	/**
@@ -123,10 +189,9 @@ public class URIMap
 	 */
 	public String getURI(int index)
 	{
-		if(indexURI.containsKey(index))
-			return indexURI.get(index);
-		else
+		if(index <= 0 || index > size)
 			return null;
+		return namespaces[indexNamespace[index]] + indexLocal[index];
 	}
 	
 	/**
@@ -134,7 +199,33 @@ public class URIMap
 	 */
 	public Set<String> getURIS()
 	{
-		return URIindex.keySet();
+		return new AbstractSet<String>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof String && getIndex((String)o) != -1;
+			}
+
+			@Override
+			public Iterator<String> iterator()
+			{
+				return new IndexIterator<String>()
+				{
+					@Override
+					protected String get(int index)
+					{
+						return getURI(index);
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
 	}
 	
 	/**
@@ -143,7 +234,7 @@ public class URIMap
 	 */
 	public boolean isClass(int index)
 	{
-		return indexType.get(index).equals(EntityType.CLASS);
+		return getType(index) == EntityType.CLASS;
 	}
 	
 	/**
@@ -152,7 +243,7 @@ public class URIMap
 	 */
 	public boolean isIndividual(int index)
 	{
-		return indexType.get(index).equals(EntityType.INDIVIDUAL);
+		return getType(index) == EntityType.INDIVIDUAL;
 	}	
 	
 	/**
@@ -161,9 +252,9 @@ public class URIMap
 	 */
 	public boolean isProperty(int index)
 	{
-		return indexType.get(index).equals(EntityType.ANNOTATION) ||
-				indexType.get(index).equals(EntityType.DATA) ||
-				indexType.get(index).equals(EntityType.OBJECT);
+		EntityType t = getType(index);
+		return t == EntityType.ANNOTATION || t == EntityType.DATA ||
+				t == EntityType.OBJECT;
 	}
 	
 	/**
@@ -171,6 +262,100 @@ public class URIMap
 	 */
 	public int size()
 	{
-		return indexURI.size();
+		return size;
+	}
+	
+//Private Methods
+	
+	//Returns the start of the local name of the URI (as in getLocalName)
+	private static int localNameStart(String uri)
+	{
+		int i = uri.indexOf("#") + 1;
+		if(i == 0)
+			i = uri.lastIndexOf("/") + 1;
+		return i;
+	}
+	
+	//Checks whether the URI of the index is the given URI, without building it
+	private boolean matches(int index, String uri)
+	{
+		String namespace = namespaces[indexNamespace[index]];
+		String local = indexLocal[index];
+		return uri.length() == namespace.length() + local.length() &&
+				uri.startsWith(namespace) && uri.endsWith(local);
+	}
+	
+	//Returns the id of the namespace, adding it if needed
+	private int namespaceId(String namespace)
+	{
+		Integer id = namespaceIds.get(namespace);
+		if(id == null)
+		{
+			id = namespaceIds.size();
+			if(id == namespaces.length)
+				namespaces = Arrays.copyOf(namespaces, id * 2);
+			namespaces[id] = namespace;
+			namespaceIds.put(namespace, id);
+		}
+		return id;
+	}
+	
+	//Mixes the bits of the hash code of the URI, as URIs of the same
+	//ontology differ mostly in their last characters
+	private static int hash(String uri)
+	{
+		int h = uri.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return h;
+	}
+	
+	private void rehash(int capacity)
+	{
+		int[] oldIndex = URIindex;
+		int[] oldHash = URIhash;
+		URIindex = new int[capacity];
+		URIhash = new int[capacity];
+		int mask = capacity - 1;
+		for(int j = 0; j < oldIndex.length; j++)
+		{
+			if(oldIndex[j] == 0)
+				continue;
+			int k = oldHash[j] & mask;
+			while(URIindex[k] != 0)
+				k = (k + 1) & mask;
+			URIindex[k] = oldIndex[j];
+			URIhash[k] = oldHash[j];
+		}
+	}
+	
+	//Iterates the indexes in the URIMap, in increasing order
+	private abstract class IndexIterator<E> implements Iterator<E>
+	{
+		private int next = 1;
+		
+		@Override
+		public boolean hasNext()
+		{
+			return next <= size;
+		}
+		
+		@Override
+		public E next()
+		{
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return get(next++);
+		}
+		
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+		
+		//Returns the element of an index
+		protected abstract E get(int index);
 	}
 }
\ No newline at end of file
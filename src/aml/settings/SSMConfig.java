@@ -0,0 +1,151 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Immutable configuration of the Semantic Similarity Matcher: the radius of   *
+* the neighborhoods, the IC, the semantic similarity measure, the strategy,   *
+* the weighting and the final scoring. Each SemanticEqMatcher carries its own *
+* configuration, so that several matchers can run concurrently.               *
+******************************************************************************/
+package aml.settings;
+
+public class SSMConfig
+{
+
+//Attributes
+
+	//The default radius
+	public static final int DEFAULT_RADIUS = 3;
+	//The radius of the neighborhoods
+	private final int radius;
+	//The IC, semantic similarity measure, strategy, weighting and final scoring
+	private final SemanticSimilarity ic;
+	private final SemanticSimilarity measure;
+	private final SemanticSimilarity strategy;
+	private final SemanticSimilarity weighting;
+	private final SemanticSimilarity finalScore;
+
+//Constructors
+
+	/**
+	 * Constructs a new SSMConfig with the default settings
+	 * (radius 3, Seco's IC, Resnik's measure, Maximum strategy,
+	 * TConorm weighting and Average final scoring)
+	 */
+	public SSMConfig()
+	{
+		this(DEFAULT_RADIUS);
+	}
+
+	/**
+	 * Constructs a new SSMConfig with the given radius and settings
+	 * (settings that are omitted take the default values)
+	 * @param radius: the radius of the neighborhoods
+	 * @param args: the settings in the order: IC, semantic measure,
+	 * strategy, weighting, final scoring
+	 */
+	public SSMConfig(int radius, SemanticSimilarity... args)
+	{
+		this.radius = radius;
+		ic = args.length >= 1 ? args[0] : SemanticSimilarity.icSECO;
+		measure = args.length >= 2 ? args[1] : SemanticSimilarity.RESNIK;
+		strategy = args.length >= 3 ? args[2] : SemanticSimilarity.MAXIMUM;
+		weighting = args.length >= 4 ? args[3] : SemanticSimilarity.WeightTCONORM;
+		finalScore = args.length >= 5 ? args[4] : SemanticSimilarity.FinalAVERAGE;
+	}
+
+	/**
+	 * Constructs a new SSMConfig with the default radius and the given settings
+	 * @param args: the settings in the order: IC, semantic measure,
+	 * strategy, weighting, final scoring
+	 */
+	public SSMConfig(SemanticSimilarity... args)
+	{
+		this(DEFAULT_RADIUS, args);
+	}
+
+//Public Methods
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if(!(o instanceof SSMConfig))
+			return false;
+		SSMConfig c = (SSMConfig)o;
+		return radius == c.radius && ic.equals(c.ic) && measure.equals(c.measure) &&
+				strategy.equals(c.strategy) && weighting.equals(c.weighting) &&
+				finalScore.equals(c.finalScore);
+	}
+
+	/**
+	 * @return the final scoring of the semantic similarity
+	 */
+	public SemanticSimilarity getFinalScore()
+	{
+		return finalScore;
+	}
+
+	/**
+	 * @return the IC used by the semantic similarity measure
+	 */
+	public SemanticSimilarity getIC()
+	{
+		return ic;
+	}
+
+	/**
+	 * @return the radius of the neighborhoods
+	 */
+	public int getRadius()
+	{
+		return radius;
+	}
+
+	/**
+	 * @return the semantic similarity measure
+	 */
+	public SemanticSimilarity getSemanticMeasure()
+	{
+		return measure;
+	}
+
+	/**
+	 * @return the strategy for combining ancestors and descendants
+	 */
+	public SemanticSimilarity getStrategy()
+	{
+		return strategy;
+	}
+
+	/**
+	 * @return the weighting of the semantic similarity
+	 */
+	public SemanticSimilarity getWeighting()
+	{
+		return weighting;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return radius + 31 * (ic.hashCode() + 31 * (measure.hashCode() + 31 * (strategy.hashCode() +
+				31 * (weighting.hashCode() + 31 * finalScore.hashCode()))));
+	}
+
+	@Override
+	public String toString()
+	{
+		return "radius " + radius + ", " + ic + "'s IC, " + measure + "'s measure, " + strategy +
+				" strategy, " + weighting + ", " + finalScore;
+	}
+}
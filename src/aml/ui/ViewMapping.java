@@ -69,9 +69,9 @@ import aml.filter.QualityFlagger;
 import aml.filter.RepairMap;
 import aml.match.Alignment;
 import aml.match.Mapping;
+import aml.ontology.AbstractRelationshipMap;
 import aml.ontology.Lexicon;
 import aml.ontology.Ontology;
-import aml.ontology.RelationshipMap;
 import aml.ontology.URIMap;
 import aml.ontology.ValueMap;
 import aml.settings.LexicalType;
@@ -94,7 +94,7 @@ public class ViewMapping extends JDialog implements ActionListener
   	//Ontology and Alignment attributes
 	private AML aml;
 	private URIMap uris;
-	private RelationshipMap rm;
+	private AbstractRelationshipMap rm;
 	private Ontology source, target;
   	private Alignment a;
 	private int mapping, sourceId, targetId;
@@ -0,0 +1,121 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A read-only Set view of a sorted range of distinct ints in an array, which  *
+* is neither copied nor boxed until its elements are iterated.                *
+******************************************************************************/
+package aml.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class IntArraySet extends AbstractSet<Integer>
+{
+
+//Attributes
+
+	//The empty set
+	public static final IntArraySet EMPTY = new IntArraySet(new int[0]);
+	//The array with the sorted elements (shared with the creator of the view)
+	private int[] elements;
+	//The range of the elements in the array
+	private int from;
+	private int to;
+
+//Constructors
+
+	/**
+	 * Constructs a new view of the given array
+	 * @param elements: the sorted array of distinct ints to view
+	 */
+	public IntArraySet(int[] elements)
+	{
+		this(elements,0,elements.length);
+	}
+
+	/**
+	 * Constructs a new view of a range of the given array
+	 * @param elements: the array with the sorted range of distinct ints to view
+	 * @param from: the start of the range (inclusive)
+	 * @param to: the end of the range (exclusive)
+	 */
+	public IntArraySet(int[] elements, int from, int to)
+	{
+		this.elements = elements;
+		this.from = from;
+		this.to = to;
+	}
+
+//Public Methods
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof Integer && contains(((Integer)o).intValue());
+	}
+
+	/**
+	 * @param i: the int to search in the set
+	 * @return whether the set contains i
+	 */
+	public boolean contains(int i)
+	{
+		return Arrays.binarySearch(elements, from, to, i) > -1;
+	}
+
+	@Override
+	public Iterator<Integer> iterator()
+	{
+		return new Iterator<Integer>()
+		{
+			private int next = from;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < to;
+			}
+
+			@Override
+			public Integer next()
+			{
+				if(next >= to)
+					throw new NoSuchElementException();
+				return elements[next++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public int size()
+	{
+		return to - from;
+	}
+
+	/**
+	 * @return a copy of the elements of the set
+	 */
+	public int[] toIntArray()
+	{
+		return Arrays.copyOfRange(elements, from, to);
+	}
+}
@@ -0,0 +1,350 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A map from ints to objects, with the keys stored unboxed in an open-        *
+* addressing table (with the same layout as the IntHashSet) and the values in *
+* a parallel array. The keys and values can be viewed as collections, whose   *
+* iterators don't support removal.                                            *
+******************************************************************************/
+package aml.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class IntHashMap<V>
+{
+
+//Attributes
+
+	//The initial capacity of the table (must be a power of 2)
+	private static final int DEFAULT_CAPACITY = 4;
+	//The slots of the table (0 marks an empty slot) and their values
+	private int[] keys;
+	private Object[] values;
+	//Whether the key 0 is in the map, and its value
+	private boolean hasZero;
+	private V zeroValue;
+	private int size;
+	//The number of changes to the keys, to detect changes while iterating
+	private int modCount;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty IntHashMap
+	 */
+	public IntHashMap()
+	{
+		keys = new int[DEFAULT_CAPACITY];
+		values = new Object[DEFAULT_CAPACITY];
+	}
+
+//Public Methods
+
+	/**
+	 * Removes all keys from the IntHashMap
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		Arrays.fill(values, null);
+		hasZero = false;
+		zeroValue = null;
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * @param key: the key to search in the IntHashMap
+	 * @return whether the IntHashMap contains the key
+	 */
+	public boolean containsKey(int key)
+	{
+		if(key == 0)
+			return hasZero;
+		return find(key) > -1;
+	}
+
+	/**
+	 * @param key: the key to search in the IntHashMap
+	 * @return the value of the key, or null if the key is not in the IntHashMap
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key)
+	{
+		if(key == 0)
+			return zeroValue;
+		int k = find(key);
+		if(k == -1)
+			return null;
+		return (V)values[k];
+	}
+
+	/**
+	 * @return whether the IntHashMap is empty
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * @return a view of the keys in the IntHashMap
+	 */
+	public Set<Integer> keySet()
+	{
+		return new AbstractSet<Integer>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof Integer && containsKey(((Integer)o).intValue());
+			}
+
+			@Override
+			public Iterator<Integer> iterator()
+			{
+				return new SlotIterator<Integer>()
+				{
+					@Override
+					protected Integer get(int slot)
+					{
+						return slot == -1 ? 0 : keys[slot];
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Sets the value of a key, adding the key if it isn't in the IntHashMap
+	 * @param key: the key to add
+	 * @param value: the value of the key
+	 * @return the previous value of the key, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value)
+	{
+		if(key == 0)
+		{
+			V old = zeroValue;
+			if(!hasZero)
+			{
+				size++;
+				modCount++;
+			}
+			hasZero = true;
+			zeroValue = value;
+			return old;
+		}
+		int mask = keys.length - 1;
+		int k = IntHashSet.hash(key) & mask;
+		while(keys[k] != 0)
+		{
+			if(keys[k] == key)
+			{
+				V old = (V)values[k];
+				values[k] = value;
+				return old;
+			}
+			k = (k + 1) & mask;
+		}
+		keys[k] = key;
+		values[k] = value;
+		size++;
+		modCount++;
+		//Keep the load factor at or below 1/2
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+		return null;
+	}
+
+	/**
+	 * Removes a key from the IntHashMap
+	 * @param key: the key to remove
+	 * @return the value of the key, or null if it had none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key)
+	{
+		if(key == 0)
+		{
+			V old = zeroValue;
+			if(hasZero)
+			{
+				size--;
+				modCount++;
+			}
+			hasZero = false;
+			zeroValue = null;
+			return old;
+		}
+		int k = find(key);
+		if(k == -1)
+			return null;
+		V old = (V)values[k];
+		size--;
+		modCount++;
+		//Shift back the following entries of the probe sequence, so that
+		//no lookup stops at the emptied slot before reaching its key
+		int mask = keys.length - 1;
+		int j = k;
+		while(true)
+		{
+			j = (j + 1) & mask;
+			if(keys[j] == 0)
+				break;
+			int home = IntHashSet.hash(keys[j]) & mask;
+			//Entry j may fill slot k only if its home slot is not in (k,j]
+			if(k <= j ? (home <= k || home > j) : (home <= k && home > j))
+			{
+				keys[k] = keys[j];
+				values[k] = values[j];
+				k = j;
+			}
+		}
+		keys[k] = 0;
+		values[k] = null;
+		return old;
+	}
+
+	/**
+	 * @return the number of keys in the IntHashMap
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return a view of the values in the IntHashMap
+	 */
+	public Collection<V> values()
+	{
+		return new AbstractCollection<V>()
+		{
+			@Override
+			public Iterator<V> iterator()
+			{
+				return new SlotIterator<V>()
+				{
+					@Override
+					@SuppressWarnings("unchecked")
+					protected V get(int slot)
+					{
+						return slot == -1 ? zeroValue : (V)values[slot];
+					}
+				};
+			}
+
+			@Override
+			public int size()
+			{
+				return size;
+			}
+		};
+	}
+
+//Private Methods
+
+	//Returns the slot of the key, or -1 if it is not in the table
+	private int find(int key)
+	{
+		int mask = keys.length - 1;
+		int k = IntHashSet.hash(key) & mask;
+		while(keys[k] != 0)
+		{
+			if(keys[k] == key)
+				return k;
+			k = (k + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		int mask = capacity - 1;
+		for(int j = 0; j < oldKeys.length; j++)
+		{
+			if(oldKeys[j] == 0)
+				continue;
+			int k = IntHashSet.hash(oldKeys[j]) & mask;
+			while(keys[k] != 0)
+				k = (k + 1) & mask;
+			keys[k] = oldKeys[j];
+			values[k] = oldValues[j];
+		}
+	}
+
+	//Iterates the used slots of the table (-1 for the key 0)
+	private abstract class SlotIterator<E> implements Iterator<E>
+	{
+		private int slot = -1;
+		private int expected = modCount;
+
+		@Override
+		public boolean hasNext()
+		{
+			if(slot == -1)
+			{
+				if(hasZero)
+					return true;
+				slot = 0;
+			}
+			while(slot < keys.length && keys[slot] == 0)
+				slot++;
+			return slot < keys.length;
+		}
+
+		@Override
+		public E next()
+		{
+			if(expected != modCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			if(slot == -1)
+			{
+				slot = 0;
+				return get(-1);
+			}
+			return get(slot++);
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		//Returns the element of a used slot
+		protected abstract E get(int slot);
+	}
+}
@@ -0,0 +1,312 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A set of ints stored unboxed in an open-addressing table (with the same     *
+* layout as the PairSet), which can be used as a Set of Integers. Its         *
+* iterators don't support removal, but all other Set operations do.           *
+******************************************************************************/
+package aml.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class IntHashSet extends AbstractSet<Integer>
+{
+
+//Attributes
+
+	//The initial capacity of the table (must be a power of 2)
+	private static final int DEFAULT_CAPACITY = 4;
+	//The slots of the table (0 marks an empty slot)
+	private int[] keys;
+	//Whether 0 is in the set
+	private boolean hasZero;
+	private int size;
+	//The number of changes to the set, to detect changes while iterating
+	private int modCount;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty IntHashSet
+	 */
+	public IntHashSet()
+	{
+		keys = new int[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Constructs a new IntHashSet with the given elements
+	 * @param c: the elements to add to the IntHashSet
+	 */
+	public IntHashSet(Collection<Integer> c)
+	{
+		this();
+		for(Integer i : c)
+			add(i.intValue());
+	}
+
+//Public Methods
+
+	@Override
+	public boolean add(Integer i)
+	{
+		return add(i.intValue());
+	}
+
+	/**
+	 * Adds an int to the IntHashSet
+	 * @param i: the int to add
+	 * @return whether the int was not already in the IntHashSet
+	 */
+	public boolean add(int i)
+	{
+		if(i == 0)
+		{
+			if(hasZero)
+				return false;
+			hasZero = true;
+			size++;
+			modCount++;
+			return true;
+		}
+		int mask = keys.length - 1;
+		int k = hash(i) & mask;
+		while(keys[k] != 0)
+		{
+			if(keys[k] == i)
+				return false;
+			k = (k + 1) & mask;
+		}
+		keys[k] = i;
+		size++;
+		modCount++;
+		//Keep the load factor at or below 1/2
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		hasZero = false;
+		size = 0;
+		modCount++;
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return o instanceof Integer && contains(((Integer)o).intValue());
+	}
+
+	/**
+	 * @param i: the int to search in the IntHashSet
+	 * @return whether the IntHashSet contains i
+	 */
+	public boolean contains(int i)
+	{
+		if(i == 0)
+			return hasZero;
+		return find(i) > -1;
+	}
+
+	@Override
+	public Iterator<Integer> iterator()
+	{
+		return new Iterator<Integer>()
+		{
+			//The next slot to check (-1 for the zero)
+			private int slot = -1;
+			private int expected = modCount;
+
+			@Override
+			public boolean hasNext()
+			{
+				if(slot == -1)
+				{
+					if(hasZero)
+						return true;
+					slot = 0;
+				}
+				while(slot < keys.length && keys[slot] == 0)
+					slot++;
+				return slot < keys.length;
+			}
+
+			@Override
+			public Integer next()
+			{
+				if(expected != modCount)
+					throw new ConcurrentModificationException();
+				if(!hasNext())
+					throw new NoSuchElementException();
+				if(slot == -1)
+				{
+					slot = 0;
+					return 0;
+				}
+				return keys[slot++];
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		return o instanceof Integer && remove(((Integer)o).intValue());
+	}
+
+	/**
+	 * Removes an int from the IntHashSet
+	 * @param i: the int to remove
+	 * @return whether the int was in the IntHashSet
+	 */
+	public boolean remove(int i)
+	{
+		if(i == 0)
+		{
+			if(!hasZero)
+				return false;
+			hasZero = false;
+			size--;
+			modCount++;
+			return true;
+		}
+		int k = find(i);
+		if(k == -1)
+			return false;
+		size--;
+		modCount++;
+		//Shift back the following entries of the probe sequence, so that
+		//no lookup stops at the emptied slot before reaching its key
+		int mask = keys.length - 1;
+		int j = k;
+		while(true)
+		{
+			j = (j + 1) & mask;
+			if(keys[j] == 0)
+				break;
+			int home = hash(keys[j]) & mask;
+			//Entry j may fill slot k only if its home slot is not in (k,j]
+			if(k <= j ? (home <= k || home > j) : (home <= k && home > j))
+			{
+				keys[k] = keys[j];
+				k = j;
+			}
+		}
+		keys[k] = 0;
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		boolean changed = false;
+		for(Object o : c)
+			changed |= remove(o);
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		int[] remove = new int[size];
+		int n = 0;
+		for(Integer i : this)
+			if(!c.contains(i))
+				remove[n++] = i;
+		for(int k = 0; k < n; k++)
+			remove(remove[k]);
+		return n > 0;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the elements of the IntHashSet, in increasing order
+	 */
+	public int[] toSortedArray()
+	{
+		int[] array = new int[size];
+		int n = 0;
+		if(hasZero)
+			array[n++] = 0;
+		for(int k : keys)
+			if(k != 0)
+				array[n++] = k;
+		Arrays.sort(array);
+		return array;
+	}
+
+//Private Methods
+
+	//Returns the slot of the key, or -1 if it is not in the table
+	private int find(int key)
+	{
+		int mask = keys.length - 1;
+		int k = hash(key) & mask;
+		while(keys[k] != 0)
+		{
+			if(keys[k] == key)
+				return k;
+			k = (k + 1) & mask;
+		}
+		return -1;
+	}
+
+	//Mixes the bits of the key (finalizer of MurmurHash3), so that
+	//consecutive ints are spread across the table
+	static int hash(int key)
+	{
+		key ^= key >>> 16;
+		key *= 0x85EBCA6B;
+		key ^= key >>> 13;
+		key *= 0xC2B2AE35;
+		key ^= key >>> 16;
+		return key;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		keys = new int[capacity];
+		int mask = capacity - 1;
+		for(int key : oldKeys)
+		{
+			if(key == 0)
+				continue;
+			int k = hash(key) & mask;
+			while(keys[k] != 0)
+				k = (k + 1) & mask;
+			keys[k] = key;
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A Table2Map with int keys, represented by an IntHashMap of IntHashMaps, so  *
+* that the keys are not boxed.                                                *
+******************************************************************************/
+package aml.util;
+
+import java.util.Set;
+import java.util.Vector;
+
+public class IntTable2Map<V extends Comparable<V>>
+{
+
+//Attributes
+
+	private IntHashMap<IntHashMap<V>> multimap;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntTable2Map()
+	{
+		multimap = new IntHashMap<IntHashMap<V>>();
+		size = 0;
+	}
+
+	/**
+	 * Constructs a new Table that is a copy of
+	 * the given Table
+	 * @param m: the Table to copy
+	 */
+	public IntTable2Map(IntTable2Map<V> m)
+	{
+		multimap = new IntHashMap<IntHashMap<V>>();
+		size = m.size;
+		for(Integer a : m.keySet())
+		{
+			IntHashMap<V> mapsA = new IntHashMap<V>();
+			for(Integer b : m.keySet(a))
+				mapsA.put(b, m.get(a, b));
+			multimap.put(a, mapsA);
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * value will be replaced
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void add(int keyA, int keyB, V valueC)
+	{
+		IntHashMap<V> mapsA = row(keyA);
+		if(!mapsA.containsKey(keyB))
+			size++;
+		mapsA.put(keyB, valueC);
+	}
+
+	/**
+	 * Adds the value for the given keys to the Table
+	 * unless there is already a value for the given keys
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void addIgnore(int keyA, int keyB, V valueC)
+	{
+		IntHashMap<V> mapsA = row(keyA);
+		if(!mapsA.containsKey(keyB))
+		{
+			mapsA.put(keyB, valueC);
+			size++;
+		}
+	}
+
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * new value will replace the previous value only if it
+	 * compares favorably as determined by the compareTo test
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void addUpgrade(int keyA, int keyB, V valueC)
+	{
+		IntHashMap<V> mapsA = row(keyA);
+		if(!mapsA.containsKey(keyB))
+		{
+			mapsA.put(keyB, valueC);
+			size++;
+		}
+		else if(mapsA.get(keyB).compareTo(valueC) < 0)
+			mapsA.put(keyB, valueC);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return whether the Table contains the first level keyA
+	 */
+	public boolean contains(int keyA)
+	{
+		return multimap.containsKey(keyA);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return whether the Table contains an entry with the two keys
+	 */
+	public boolean contains(int keyA, int keyB)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		return mapsA != null && mapsA.containsKey(keyB);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return whether the Table contains an entry with the two keys
+	 * and the given value
+	 */
+	public boolean contains(int keyA, int keyB, V valueC)
+	{
+		V value = get(keyA, keyB);
+		return value != null && value.equals(valueC);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the number of entries with keyA
+	 */
+	public int entryCount(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return 0;
+		return mapsA.size();
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return the number of entries with keyA that have valueC
+	 */
+	public int entryCount(int keyA, V valueC)
+	{
+		int count = 0;
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return count;
+		for(V value : mapsA.values())
+			if(value.equals(valueC))
+				count++;
+		return count;
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the IntHashMap with all entries for keyA
+	 */
+	public IntHashMap<V> get(int keyA)
+	{
+		return multimap.get(keyA);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return the value for the entry with the two keys or null
+	 * if no such entry exists
+	 */
+	public V get(int keyA, int keyB)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return null;
+		return mapsA.get(keyB);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the second level key with the maximum value in entries
+	 * with keyA, or null if there are no such entries
+	 */
+	public Integer getKeyMaximum(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null || mapsA.isEmpty())
+			return null;
+		Integer max = null;
+		V maxVal = null;
+		for(Integer b : mapsA.keySet())
+		{
+			V value = mapsA.get(b);
+			if(max == null || value.compareTo(maxVal) > 0)
+			{
+				maxVal = value;
+				max = b;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return the list of second level keys in entries with keyA and valueC
+	 */
+	public Vector<Integer> getMatchingKeys(int keyA, V valueC)
+	{
+		Vector<Integer> keysB = new Vector<Integer>(0,1);
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return keysB;
+		for(Integer b : mapsA.keySet())
+			if(mapsA.get(b).equals(valueC))
+				keysB.add(b);
+		return keysB;
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the maximum value in entries with keyA
+	 */
+	public V getMaximumValue(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return null;
+		V max = null;
+		for(V value : mapsA.values())
+			if(max == null || value.compareTo(max) > 0)
+				max = value;
+		return max;
+	}
+
+	/**
+	 * @return the set of first level keys in the Table
+	 */
+	public Set<Integer> keySet()
+	{
+		return multimap.keySet();
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the set of second level keys in all entries with keyA
+	 */
+	public Set<Integer> keySet(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+			return null;
+		return mapsA.keySet();
+	}
+
+	/**
+	 * @return the number of first level keys in the Table
+	 */
+	public int keyCount()
+	{
+		return multimap.size();
+	}
+
+	/**
+	 * Removes all entries for the given first level key
+	 * @param keyA: the key to remove from the Table
+	 */
+	public void remove(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.remove(keyA);
+		if(mapsA != null)
+			size -= mapsA.size();
+	}
+
+	/**
+	 * Removes the entry for the given key pair
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to remove from the Table
+	 */
+	public void remove(int keyA, int keyB)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA != null && mapsA.containsKey(keyB))
+		{
+			mapsA.remove(keyB);
+			size--;
+		}
+	}
+
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+//Private Methods
+
+	//Returns the entries for keyA, adding them if needed
+	private IntHashMap<V> row(int keyA)
+	{
+		IntHashMap<V> mapsA = multimap.get(keyA);
+		if(mapsA == null)
+		{
+			mapsA = new IntHashMap<V>();
+			multimap.put(keyA, mapsA);
+		}
+		return mapsA;
+	}
+}
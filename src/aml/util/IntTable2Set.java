@@ -0,0 +1,172 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A Table2Set of ints, represented by an IntHashMap of IntHashSets, so that   *
+* neither the keys nor the values are boxed.                                  *
+******************************************************************************/
+package aml.util;
+
+import java.util.Collection;
+import java.util.Set;
+
+public class IntTable2Set
+{
+
+//Attributes
+
+	private IntHashMap<IntHashSet> multimap;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntTable2Set()
+	{
+		multimap = new IntHashMap<IntHashSet>();
+		size = 0;
+	}
+
+	/**
+	 * Constructs a new Table that is a copy of
+	 * the given Table
+	 * @param m: the Table to copy
+	 */
+	public IntTable2Set(IntTable2Set m)
+	{
+		multimap = new IntHashMap<IntHashSet>();
+		size = m.size;
+		for(Integer a : m.keySet())
+			multimap.put(a, new IntHashSet(m.get(a)));
+	}
+
+//Public Methods
+
+	/**
+	 * Adds the value for the given key to the Table
+	 * @param key: the key to add to the Table
+	 * @param value: the value to add to the Table
+	 */
+	public void add(int key, int value)
+	{
+		IntHashSet set = multimap.get(key);
+		if(set == null)
+		{
+			set = new IntHashSet();
+			multimap.put(key, set);
+		}
+		if(set.add(value))
+			size++;
+	}
+
+	/**
+	 * Adds the values for the given key to the Table
+	 * @param key: the key to add to the Table
+	 * @param values: the values to add to the Table
+	 */
+	public void addAll(int key, Collection<Integer> values)
+	{
+		for(Integer val : values)
+			add(key, val);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return whether the Table contains the key
+	 */
+	public boolean contains(int key)
+	{
+		return multimap.containsKey(key);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @param value: the value to search in the Table
+	 * @return whether the Table contains an entry with the key and value
+	 */
+	public boolean contains(int key, int value)
+	{
+		IntHashSet set = multimap.get(key);
+		return set != null && set.contains(value);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return the number of entries with key
+	 */
+	public int entryCount(int key)
+	{
+		IntHashSet set = multimap.get(key);
+		if(set == null)
+			return 0;
+		return set.size();
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return the set of all entries for key
+	 */
+	public IntHashSet get(int key)
+	{
+		return multimap.get(key);
+	}
+
+	/**
+	 * @return the set of keys in the Table
+	 */
+	public Set<Integer> keySet()
+	{
+		return multimap.keySet();
+	}
+
+	/**
+	 * @return the number of keys in the Table
+	 */
+	public int keyCount()
+	{
+		return multimap.size();
+	}
+
+	/**
+	 * Removes all values for the given key
+	 * @param key: the key to remove from the Table
+	 */
+	public void remove(int key)
+	{
+		IntHashSet set = multimap.remove(key);
+		if(set != null)
+			size -= set.size();
+	}
+
+	/**
+	 * Removes the given value for the given key
+	 * @param key: the key to search in the Table
+	 * @param value: the value to remove from the Table
+	 */
+	public void remove(int key, int value)
+	{
+		IntHashSet set = multimap.get(key);
+		if(set != null && set.remove(value))
+			size--;
+	}
+
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
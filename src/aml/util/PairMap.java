@@ -0,0 +1,243 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A compact map from pairs of ints to doubles, with the same long encoding    *
+* and open-addressing layout as the PairSet, plus a parallel value array.     *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class PairMap
+{
+
+//Attributes
+
+	//The initial capacity of the table (must be a power of 2)
+	private static final int DEFAULT_CAPACITY = 64;
+	//The slots of the table (0 marks an empty slot) and their values
+	private long[] keys;
+	private double[] values;
+	//Whether the pair encoded as 0, i.e. (0,0), is in the map, and its value
+	private boolean hasZero;
+	private double zeroValue;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty PairMap
+	 */
+	public PairMap()
+	{
+		keys = new long[DEFAULT_CAPACITY];
+		values = new double[DEFAULT_CAPACITY];
+		hasZero = false;
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Removes all pairs from the PairMap
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 * @return whether the PairMap contains the pair
+	 */
+	public boolean contains(int first, int second)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+			return hasZero;
+		return find(key) > -1;
+	}
+
+	/**
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 * @return the value of the pair, or NaN if the pair is not in the PairMap
+	 */
+	public double get(int first, int second)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+			return hasZero ? zeroValue : Double.NaN;
+		int i = find(key);
+		if(i == -1)
+			return Double.NaN;
+		return values[i];
+	}
+
+	/**
+	 * Sets the value of a pair, adding the pair if it isn't in the PairMap
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 * @param value: the value of the pair
+	 */
+	public void put(int first, int second, double value)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+		{
+			if(!hasZero)
+				size++;
+			hasZero = true;
+			zeroValue = value;
+			return;
+		}
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != 0)
+		{
+			if(keys[i] == key)
+			{
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		//Keep the load factor at or below 1/2
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+	}
+
+	/**
+	 * Removes a pair from the PairMap
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 */
+	public void remove(int first, int second)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+		{
+			if(hasZero)
+				size--;
+			hasZero = false;
+			return;
+		}
+		int i = find(key);
+		if(i == -1)
+			return;
+		size--;
+		//Shift back the following entries of the probe sequence, so that
+		//no lookup stops at the emptied slot before reaching its key
+		int mask = keys.length - 1;
+		int j = i;
+		while(true)
+		{
+			j = (j + 1) & mask;
+			if(keys[j] == 0)
+				break;
+			int home = hash(keys[j]) & mask;
+			//Entry j may fill slot i only if its home slot is not in (i,j]
+			if(i <= j ? (home <= i || home > j) : (home <= i && home > j))
+			{
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = 0;
+	}
+
+	/**
+	 * @return the number of pairs in the PairMap
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the encoded pairs, sorted by first element and then by second
+	 * element (for non-negative elements)
+	 */
+	public long[] toSortedArray()
+	{
+		long[] pairs = new long[size];
+		int j = 0;
+		if(hasZero)
+			pairs[j++] = 0;
+		for(long k : keys)
+			if(k != 0)
+				pairs[j++] = k;
+		Arrays.sort(pairs);
+		return pairs;
+	}
+
+//Private Methods
+
+	private static long encode(int first, int second)
+	{
+		return ((long)first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	//Returns the slot of the key, or -1 if it is not in the table
+	private int find(long key)
+	{
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != 0)
+		{
+			if(keys[i] == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	//Mixes the bits of the key (finalizer of MurmurHash3), so that pairs
+	//with close elements are spread across the table
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new long[capacity];
+		values = new double[capacity];
+		int mask = capacity - 1;
+		for(int k = 0; k < oldKeys.length; k++)
+		{
+			if(oldKeys[k] == 0)
+				continue;
+			int i = hash(oldKeys[k]) & mask;
+			while(keys[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[k];
+			values[i] = oldValues[k];
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A compact set of pairs of ints, each pair encoded as a long (first int in   *
+* the upper 32 bits) and stored in an open-addressing hash table with linear  *
+* probing, so that no objects are created per pair.                           *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class PairSet
+{
+
+//Attributes
+
+	//The initial capacity of the table (must be a power of 2)
+	private static final int DEFAULT_CAPACITY = 64;
+	//The slots of the table (0 marks an empty slot)
+	private long[] keys;
+	//Whether the pair encoded as 0, i.e. (0,0), is in the set
+	private boolean hasZero;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty PairSet
+	 */
+	public PairSet()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new empty PairSet
+	 * @param expected: the expected number of pairs
+	 */
+	public PairSet(int expected)
+	{
+		int capacity = DEFAULT_CAPACITY;
+		while(capacity < expected * 2)
+			capacity <<= 1;
+		keys = new long[capacity];
+		hasZero = false;
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a pair to the PairSet
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 * @return whether the pair was added (i.e., wasn't already in the set)
+	 */
+	public boolean add(int first, int second)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+		{
+			if(hasZero)
+				return false;
+			hasZero = true;
+			size++;
+			return true;
+		}
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != 0)
+		{
+			if(keys[i] == key)
+				return false;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		size++;
+		//Keep the load factor at or below 1/2
+		if(size * 2 > keys.length)
+			rehash(keys.length * 2);
+		return true;
+	}
+
+	/**
+	 * Removes all pairs from the PairSet
+	 */
+	public void clear()
+	{
+		Arrays.fill(keys, 0);
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * @param first: the first element of the pair
+	 * @param second: the second element of the pair
+	 * @return whether the PairSet contains the pair
+	 */
+	public boolean contains(int first, int second)
+	{
+		long key = encode(first,second);
+		if(key == 0)
+			return hasZero;
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(keys[i] != 0)
+		{
+			if(keys[i] == key)
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * @param key: an encoded pair
+	 * @return the first element of the pair
+	 */
+	public static int first(long key)
+	{
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * @param key: an encoded pair
+	 * @return the second element of the pair
+	 */
+	public static int second(long key)
+	{
+		return (int)key;
+	}
+
+	/**
+	 * @return the number of pairs in the PairSet
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the encoded pairs, sorted by first element and then by second
+	 * element (for non-negative elements)
+	 */
+	public long[] toSortedArray()
+	{
+		long[] pairs = new long[size];
+		int j = 0;
+		if(hasZero)
+			pairs[j++] = 0;
+		for(long k : keys)
+			if(k != 0)
+				pairs[j++] = k;
+		Arrays.sort(pairs);
+		return pairs;
+	}
+
+//Private Methods
+
+	private static long encode(int first, int second)
+	{
+		return ((long)first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	//Mixes the bits of the key (finalizer of MurmurHash3), so that pairs
+	//with close elements are spread across the table
+	private static int hash(long key)
+	{
+		key ^= key >>> 33;
+		key *= 0xFF51AFD7ED558CCDL;
+		key ^= key >>> 33;
+		key *= 0xC4CEB9FE1A85EC53L;
+		key ^= key >>> 33;
+		return (int)key;
+	}
+
+	private void rehash(int capacity)
+	{
+		long[] old = keys;
+		keys = new long[capacity];
+		int mask = capacity - 1;
+		for(long k : old)
+		{
+			if(k == 0)
+				continue;
+			int i = hash(k) & mask;
+			while(keys[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = k;
+		}
+	}
+}
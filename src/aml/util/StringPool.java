@@ -0,0 +1,96 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* A pool of distinct Strings, so that equal Strings from different sources   *
+* (e.g., the names in the Lexicons of both open ontologies) are stored once.  *
+* As the pool keeps every String it is given, it should only be used for     *
+* data that lives as long as the pool itself. The Strings are kept in an      *
+* open-addressing table, as in the URIMap.                                    *
+******************************************************************************/
+package aml.util;
+
+public class StringPool
+{
+
+//Attributes
+
+	//The initial number of slots of the table
+	private static final int DEFAULT_CAPACITY = 2048;
+	//The table of Strings (null marks an empty slot) and the hash code
+	//of the String in each used slot
+	private String[] strings;
+	private int[] hashes;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty StringPool
+	 */
+	public StringPool()
+	{
+		strings = new String[DEFAULT_CAPACITY];
+		hashes = new int[DEFAULT_CAPACITY];
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a String to the pool, unless an equal String is already there
+	 * @param s: the String to intern
+	 * @return the String in the pool that is equal to s (which is s itself
+	 * if there wasn't one)
+	 */
+	public synchronized String canonical(String s)
+	{
+		int h = IntHashSet.hash(s.hashCode());
+		int mask = strings.length - 1;
+		int k = h & mask;
+		while(strings[k] != null)
+		{
+			if(hashes[k] == h && strings[k].equals(s))
+				return strings[k];
+			k = (k + 1) & mask;
+		}
+		strings[k] = s;
+		hashes[k] = h;
+		size++;
+		//Keep the load factor of the table at or below 1/2
+		if(size * 2 > strings.length)
+			rehash(strings.length * 2);
+		return s;
+	}
+
+//Private Methods
+
+	private void rehash(int capacity)
+	{
+		String[] oldStrings = strings;
+		int[] oldHashes = hashes;
+		strings = new String[capacity];
+		hashes = new int[capacity];
+		int mask = capacity - 1;
+		for(int j = 0; j < oldStrings.length; j++)
+		{
+			if(oldStrings[j] == null)
+				continue;
+			int k = oldHashes[j] & mask;
+			while(strings[k] != null)
+				k = (k + 1) & mask;
+			strings[k] = oldStrings[j];
+			hashes[k] = oldHashes[j];
+		}
+	}
+}
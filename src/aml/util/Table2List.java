@@ -69,19 +69,21 @@ public class Table2List<A,B extends Comparable<B>>
 	public void add(A key, B value)
 	{
 		Vector<B> list = multimap.get(key);
-		if(!contains(key,value))
-			size++;
 		if(list == null)
 		{
 			list = new Vector<B>(0,1);
 			list.add(value);
 			multimap.put(key, list);
+			size++;
 		}
 		else
 		{
 			int index = list.indexOf(value);
 			if(index == -1)
+			{
 				list.add(value);
+				size++;
+			}
 			else if(value.compareTo(list.get(index)) > 0)
 			{
 				list.remove(index);
@@ -67,16 +67,13 @@ public class Table2Set<A,B>
 	public void add(A key, B value)
 	{
 		HashSet<B> set = multimap.get(key);
-		if(!contains(key,value))
-			size++;
 		if(set == null)
 		{
 			set = new HashSet<B>();
-			set.add(value);
 			multimap.put(key, set);
 		}
-		else 
-			set.add(value);	
+		if(set.add(value))
+			size++;
 	}
 	
 	/**
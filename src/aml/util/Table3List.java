@@ -67,16 +67,15 @@ public class Table3List<A,B,C extends Comparable<C>>
 	public void add(A keyA, B keyB, C valueC)
 	{
 		Table2List<B,C> mapsA = multimap.get(keyA);
-		if(!contains(keyA,keyB,valueC))
-			size++;
 		if(mapsA == null)
 		{
 			mapsA = new Table2List<B,C>();
-			mapsA.add(keyB, valueC);
 			multimap.put(keyA, mapsA);
 		}
-		else
-			mapsA.add(keyB, valueC);
+		//The entry is new if the size of the second level Table changes
+		int before = mapsA.size();
+		mapsA.add(keyB, valueC);
+		size += mapsA.size() - before;
 	}
 	
 	/**